@@ -0,0 +1,524 @@
+/** A class that finds a solution for a board within a time or node budget using Anytime Repairing A* (ARA*).
+ * A weighted A* search with a large weight quickly finds a path that may be longer than necessary; the weight is
+ * then lowered step by step and each search reuses the work of the previous one to improve the path, until the
+ * weight reaches 1 and the path is optimal or the budget runs out. The best path found so far is returned together
+ * with a bound on how much longer it can be than an optimal one.
+ *
+ * Boards of size up to 5 are packed into two longs as in LongTiles and LongPairTiles. Every reached board is a
+ * node stored in parallel primitive arrays, found again through an open-addressing table of node numbers, and the
+ * open list is a binary heap of node numbers. The Manhattan distance of a child is derived from its parent by
+ * looking at the single tile that moved. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AnytimeSolver {
+    public static final double DEFAULT_INITIAL_WEIGHT = 3.0;
+    public static final double DEFAULT_WEIGHT_STEP = 0.5;
+    private static final Tiles.Direction[] DIRECTIONS = Tiles.Direction.values();
+    private static final int CHECK_INTERVAL = 4096;     // the number of nodes expanded between checks of the clock
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+    private static final Metrics.Histogram SEARCH_TIME = Metrics.histogram("solver.anytime.ms");
+    private static final Metrics.Counter NODES = Metrics.counter("solver.anytime.nodes");
+
+    private Tiles start;
+    private int size;
+    private int cells;
+    private int[] distance;         // distance[value * cells + pos] is the Manhattan distance of 'value' at 'pos'
+    private double initialWeight;
+    private double weightStep;
+    private double weight;          // the weight of the heuristic in the current iteration
+    private long timeLimit;         // the number of milliseconds a search may take, 0 for no limit
+    private long nodeLimit;         // the number of nodes a search may expand, 0 for no limit
+    private long deadline;
+    private volatile boolean cancelled;
+
+    // the nodes, stored column-wise
+    private int nodeCount;
+    private long[] low;
+    private long[] high;
+    private int[] g;                // the length of the best known path to the node
+    private int[] h;                // the Manhattan distance of the node
+    private int[] parent;           // the node the best known path comes from
+    private byte[] move;            // the direction of the move from the parent
+    private byte[] empty;           // the position of the empty space
+    private int[] heapIndex;        // the position of the node in 'heap', or NONE if it is not open
+    private int[] closedIn;         // the iteration in which the node was last expanded
+
+    private int[] table;            // node numbers by hash of their board, NONE for free slots
+    private int[] heap;             // the open nodes ordered by g + weight * h
+    private int heapSize;
+    private int[] inconsistent;     // closed nodes whose path improved during the current iteration
+    private int inconsistentSize;
+
+    private int iteration;
+    private int goal;               // the node of the solved board once reached, otherwise NONE
+    private List<Tiles.Direction> best;
+    private double bound;
+    private long nodesExpanded;
+    private long elapsedTime;
+
+    // Constructor for AnytimeSolver
+    public AnytimeSolver(Tiles tiles) {
+        this(tiles, DEFAULT_INITIAL_WEIGHT, DEFAULT_WEIGHT_STEP);
+    }
+
+    // Constructor for AnytimeSolver
+    public AnytimeSolver(Tiles tiles, double initialWeight, double weightStep) {
+        if (initialWeight < 1 || weightStep <= 0) {
+            throw new IllegalArgumentException("The initial weight must be at least 1 and the step positive");
+        }
+        this.start = tiles;
+        this.size = tiles.getSize();
+        this.cells = size * size;
+        this.initialWeight = initialWeight;
+        this.weightStep = weightStep;
+    }
+
+    // accessor for the number of nodes expanded by the last search
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    // accessor for the wall-clock time in milliseconds taken by the last search
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns how many times longer than an optimal solution the solution returned by the last search can be
+     * at most. A bound of 1 means that the solution is optimal.
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    /** Returns true if the solution returned by the last search is known to be optimal. */
+    public boolean isOptimal() {
+        return bound <= 1;
+    }
+
+    // mutator for the number of milliseconds a search may take, 0 for no limit
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    // mutator for the number of nodes a search may expand, 0 for no limit
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Asks a running search to stop. Safe to call from any thread; the search returns the best solution found
+     * so far, or throws SearchAbortedException if it has not found one yet. The next call of solve searches again.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Computes a solution for the board, improving it until it is optimal or the budget is used up. Applying the
+     * returned directions in order with Tiles.move solves the board; getBound tells how good the solution is.
+     * @return the best list of moves found that solves the board
+     * @throws InvalidConfigurationException if the board is larger than 5x5 or cannot be solved
+     * @throws SearchAbortedException if the budget ran out or the search was cancelled before any solution was found
+     */
+    public List<Tiles.Direction> solve() throws InvalidConfigurationException, SearchAbortedException {
+        if (size > LongPairTiles.MAX_SIZE) {
+            throw new InvalidConfigurationException("Invalid configuration: the anytime solver supports " +
+                    "boards of size up to " + LongPairTiles.MAX_SIZE + " (found " + size + ").");
+        }
+        if (!start.isSolvable()) {
+            throw new InvalidConfigurationException("Invalid configuration: the puzzle is not solvable.");
+        }
+
+        long startTime = System.currentTimeMillis();
+        deadline = timeLimit > 0 ? startTime + timeLimit : Long.MAX_VALUE;
+        cancelled = false;
+        nodesExpanded = 0;
+        best = null;
+        bound = Double.POSITIVE_INFINITY;
+        try {
+            search();
+        } finally {
+            elapsedTime = System.currentTimeMillis() - startTime;
+            recordMetrics();
+            release();
+        }
+
+        if (best == null) {
+            throw new SearchAbortedException(cancelled ? "Search aborted: cancelled."
+                    : "Search aborted: the budget ran out before a solution was found.");
+        }
+        return best;
+    }
+
+    /** Runs weighted A* searches with decreasing weights until the solution is optimal or the budget runs out. */
+    private void search() {
+        allocate();
+        long startLow = 0;
+        long startHigh = 0;
+        int startH = 0;
+        for (int pos = 0; pos < cells; pos++) {
+            int value = start.getTileUnchecked(pos);
+            startLow = LongPairTiles.lowWithTile(startLow, pos, value);
+            startHigh = LongPairTiles.highWithTile(startHigh, pos, value);
+            startH += distance[value * cells + pos];
+        }
+        int root = addNode(startLow, startHigh, start.getEmptyPosition(), startH);
+        g[root] = 0;
+        push(root);
+
+        weight = initialWeight;
+        while (true) {
+            boolean completed = improvePath();
+            if (goal != NONE && g[goal] != UNREACHED && (best == null || g[goal] < best.size())) {
+                best = pathTo(goal);
+            }
+            if (best != null) {
+                bound = Math.min(bound, currentBound(completed));
+            }
+            if (!completed) {
+                return;
+            }
+            if (bound <= 1) {
+                bound = 1;
+                return;
+            }
+
+            // lower the weight and let the next search repair the paths that improved after their node was closed
+            weight = Math.max(1, weight - weightStep);
+            for (int i = 0; i < inconsistentSize; i++) {
+                push(inconsistent[i]);
+            }
+            inconsistentSize = 0;
+            heapify();
+            iteration++;
+        }
+    }
+
+    /**
+     * Expands open nodes in order of g + weight * h until no open node can lead to a shorter solution.
+     * @return true if the search completed, false if the budget ran out or the search was cancelled
+     */
+    private boolean improvePath() {
+        while (heapSize > 0 && (goal == NONE || key(heap[0]) < g[goal])) {
+            if (nodeLimit > 0 && nodesExpanded >= nodeLimit) {
+                return false;
+            }
+            if (nodesExpanded % CHECK_INTERVAL == 0 && (cancelled || System.currentTimeMillis() > deadline)) {
+                return false;
+            }
+
+            int node = pop();
+            closedIn[node] = iteration;
+            nodesExpanded++;
+            expand(node);
+        }
+
+        return true;
+    }
+
+    /** Relaxes the moves from a node to all boards one move away except the one it was reached from. */
+    private void expand(int node) {
+        int emptyPos = empty[node];
+        int from = parent[node] == NONE ? -1 : empty[parent[node]];
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int tilePos = tilePosition(emptyPos, DIRECTIONS[d]);
+            if (tilePos < 0 || tilePos == from) {
+                continue;
+            }
+
+            long l = low[node];
+            long hi = high[node];
+            int value = LongPairTiles.tileAt(l, hi, tilePos);
+            long childLow = LongPairTiles.lowWithTile(LongPairTiles.lowWithTile(l, tilePos, Tiles.EMPTY),
+                    emptyPos, value);
+            long childHigh = LongPairTiles.highWithTile(LongPairTiles.highWithTile(hi, tilePos, Tiles.EMPTY),
+                    emptyPos, value);
+            int childH = h[node] + distance[value * cells + emptyPos] - distance[value * cells + tilePos];
+
+            int child = find(childLow, childHigh);
+            if (child == NONE) {
+                child = addNode(childLow, childHigh, tilePos, childH);
+            }
+            if (g[node] + 1 >= g[child]) {
+                continue;
+            }
+
+            g[child] = g[node] + 1;
+            parent[child] = node;
+            move[child] = (byte) d;
+            if (closedIn[child] != iteration) {
+                if (heapIndex[child] == NONE) {
+                    push(child);
+                } else {
+                    siftUp(heapIndex[child]);
+                }
+            } else if (heapIndex[child] == NONE) {
+                // closed in this iteration: keep it for the next one instead of expanding it again
+                if (inconsistentSize == inconsistent.length) {
+                    inconsistent = Arrays.copyOf(inconsistent, inconsistentSize * 2);
+                }
+                heapIndex[child] = Integer.MIN_VALUE;
+                inconsistent[inconsistentSize++] = child;
+            }
+        }
+    }
+
+    /**
+     * Returns the suboptimality bound of the current solution: its length divided by the smallest g + h of the
+     * open and inconsistent nodes, which no solution can beat. A completed search also guarantees the weight.
+     */
+    private double currentBound(boolean completed) {
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < heapSize; i++) {
+            lowest = Math.min(lowest, g[heap[i]] + h[heap[i]]);
+        }
+        for (int i = 0; i < inconsistentSize; i++) {
+            lowest = Math.min(lowest, g[inconsistent[i]] + h[inconsistent[i]]);
+        }
+
+        if (lowest == Integer.MAX_VALUE || lowest >= g[goal]) {
+            return 1;
+        }
+        double ratio = (double) g[goal] / lowest;
+        return completed ? Math.min(weight, ratio) : ratio;
+    }
+
+    /** Returns the moves of the best known path from the start to a node. */
+    private List<Tiles.Direction> pathTo(int node) {
+        List<Tiles.Direction> path = new ArrayList<>(g[node]);
+        for (int n = node; parent[n] != NONE; n = parent[n]) {
+            path.add(DIRECTIONS[move[n]]);
+        }
+
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Returns the position of the tile that a move in 'direction' slides into the empty space, or -1 if none. */
+    private int tilePosition(int emptyPos, Tiles.Direction direction) {
+        int col = emptyPos % size;
+        int row = emptyPos / size;
+        switch (direction) {
+            case UP:
+                return row + 1 < size ? emptyPos + size : -1;
+            case RIGHT:
+                return col > 0 ? emptyPos - 1 : -1;
+            case DOWN:
+                return row > 0 ? emptyPos - size : -1;
+            default:
+                return col + 1 < size ? emptyPos + 1 : -1;
+        }
+    }
+
+    // returns the priority of an open node
+    private double key(int node) {
+        return g[node] + weight * h[node];
+    }
+
+    // checks if node 'a' has to be expanded before node 'b'; ties go to the node closer to the goal
+    private boolean before(int a, int b) {
+        double ka = key(a);
+        double kb = key(b);
+        return ka < kb || (ka == kb && h[a] < h[b]);
+    }
+
+    // adds a node to the open heap
+    private void push(int node) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        heap[heapSize] = node;
+        heapIndex[node] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    // removes and returns the open node with the smallest priority
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = NONE;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    // restores the heap order after the priorities changed with the weight
+    private void heapify() {
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        while (i > 0) {
+            int up = (i - 1) / 2;
+            if (!before(node, heap[up])) {
+                break;
+            }
+            heap[i] = heap[up];
+            heapIndex[heap[i]] = i;
+            i = up;
+        }
+        heap[i] = node;
+        heapIndex[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], node)) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        heapIndex[node] = i;
+    }
+
+    // returns the node of a packed board, or NONE if the board has not been reached
+    private int find(long l, long hi) {
+        int mask = table.length - 1;
+        for (int slot = slot(l, hi); ; slot = (slot + 1) & mask) {
+            int node = table[slot];
+            if (node == NONE) {
+                return NONE;
+            }
+            if (low[node] == l && high[node] == hi) {
+                return node;
+            }
+        }
+    }
+
+    // creates an unreached node for a packed board that is not stored yet
+    private int addNode(long l, long hi, int emptyPos, int distanceToGoal) {
+        if (nodeCount == low.length) {
+            int capacity = nodeCount * 2;
+            low = Arrays.copyOf(low, capacity);
+            high = Arrays.copyOf(high, capacity);
+            g = Arrays.copyOf(g, capacity);
+            h = Arrays.copyOf(h, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            move = Arrays.copyOf(move, capacity);
+            empty = Arrays.copyOf(empty, capacity);
+            heapIndex = Arrays.copyOf(heapIndex, capacity);
+            closedIn = Arrays.copyOf(closedIn, capacity);
+        }
+
+        int node = nodeCount++;
+        low[node] = l;
+        high[node] = hi;
+        g[node] = UNREACHED;
+        h[node] = distanceToGoal;
+        parent[node] = NONE;
+        empty[node] = (byte) emptyPos;
+        heapIndex[node] = NONE;
+        closedIn[node] = -1;
+        if (distanceToGoal == 0) {
+            goal = node;
+        }
+
+        if (nodeCount * 2 > table.length) {
+            table = new int[table.length * 2];
+            Arrays.fill(table, NONE);
+            for (int n = 0; n < nodeCount; n++) {
+                insert(n);
+            }
+        } else {
+            insert(node);
+        }
+        return node;
+    }
+
+    // stores a node in the first free slot of the table for its board
+    private void insert(int node) {
+        int mask = table.length - 1;
+        int slot = slot(low[node], high[node]);
+        while (table[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = node;
+    }
+
+    // returns the first slot probed for a packed board
+    private int slot(long l, long hi) {
+        long hash = (l ^ Long.rotateLeft(hi, 29)) * PHI;
+        return (int) (hash >>> (Long.SIZE - Integer.numberOfTrailingZeros(table.length)));
+    }
+
+    // prepares empty node arrays, the table and the distances of every tile from its goal
+    private void allocate() {
+        int capacity = 1 << 12;
+        nodeCount = 0;
+        low = new long[capacity];
+        high = new long[capacity];
+        g = new int[capacity];
+        h = new int[capacity];
+        parent = new int[capacity];
+        move = new byte[capacity];
+        empty = new byte[capacity];
+        heapIndex = new int[capacity];
+        closedIn = new int[capacity];
+        table = new int[capacity * 2];
+        Arrays.fill(table, NONE);
+        heap = new int[capacity];
+        heapSize = 0;
+        inconsistent = new int[capacity];
+        inconsistentSize = 0;
+        iteration = 0;
+        goal = NONE;
+
+        distance = new int[cells * cells];
+        for (int value = 1; value < cells; value++) {
+            for (int pos = 0; pos < cells; pos++) {
+                distance[value * cells + pos] = Math.abs(pos % size - (value - 1) % size)
+                        + Math.abs(pos / size - (value - 1) / size);
+            }
+        }
+    }
+
+    // drops the nodes of the last search so that their memory can be reclaimed
+    private void release() {
+        low = null;
+        high = null;
+        g = null;
+        h = null;
+        parent = null;
+        move = null;
+        empty = null;
+        heapIndex = null;
+        closedIn = null;
+        table = null;
+        heap = null;
+        inconsistent = null;
+    }
+
+    // adds the last search to the metrics
+    private void recordMetrics() {
+        if (Metrics.ENABLED) {
+            SEARCH_TIME.record(elapsedTime);
+            NODES.add(nodesExpanded);
+        }
+    }
+}
@@ -6,17 +6,16 @@ import java.util.Arrays;
 public class ArrayTiles extends Tiles {
     private byte[] tiles;   // represents the board
     private int emptyPos;
+    private int invalidTile;    // a tile value that does not fit into a byte, reported by ensureValidity
 
     // Constructor for ArrayTiles
     public ArrayTiles(Configuration configuration) throws ConfigurationFormatException, InvalidConfigurationException {
         super(configuration);
         tiles = new byte[getSize() * getSize()];
         getConfiguration().initialise(this);
-        for (int i = 0; i < getSize(); i++) {
-            for (int j = 0; j < getSize(); j++) {
-                if (getTile(j, i) == EMPTY) {
-                    emptyPos = i * getSize() + j;
-                }
+        for (int pos = 0; pos < tiles.length; pos++) {
+            if (tiles[pos] == EMPTY) {
+                emptyPos = pos;
             }
         }
     }
@@ -25,6 +24,7 @@ public class ArrayTiles extends Tiles {
     public ArrayTiles(ArrayTiles other) {
         super(other);
         this.emptyPos = other.emptyPos;
+        this.invalidTile = other.invalidTile;
         tiles = new byte[other.tiles.length];
         for (int i = 0; i < tiles.length; i++) {
             tiles[i] = other.tiles[i];
@@ -46,62 +46,43 @@ public class ArrayTiles extends Tiles {
     @Override
     /** Makes a move by sliding a tile into the empty space in the specified direction. */
     protected void makeMove(Direction direction) {
-        int emptyRow = emptyPos / getSize();
-        int emptyCol = emptyPos % getSize();
-        switch (direction) {
-            case UP:
-                setTile(emptyCol, emptyRow, getTile(emptyCol, emptyRow + 1));
-                setTile(emptyCol, emptyRow + 1, (byte) 0);
-                emptyPos += getSize();
-                break;
-            case RIGHT:
-                setTile(emptyCol, emptyRow, getTile(emptyCol - 1, emptyRow));
-                setTile(emptyCol - 1, emptyRow, (byte) 0);
-                emptyPos--;
-                break;
-            case DOWN:
-                setTile(emptyCol, emptyRow, getTile(emptyCol, emptyRow - 1));
-                setTile(emptyCol, emptyRow - 1, (byte) 0);
-                emptyPos -= getSize();
-                break;
-            case LEFT:
-                setTile(emptyCol, emptyRow, getTile(emptyCol + 1, emptyRow));
-                setTile(emptyCol + 1, emptyRow, (byte) 0);
-                emptyPos++;
-                break;
-        }
+        int tilePos = tilePosition(direction);
+        trackMove(tiles[tilePos], tilePos, emptyPos);
+        tiles[emptyPos] = tiles[tilePos];
+        tiles[tilePos] = EMPTY;
+        emptyPos = tilePos;
     }
 
     @Override
-    // accessor for a specific tile
-    public byte getTile(int col, int row) {
-        return getTile(row * getSize() + col);
+    // accessor for a tile without bounds checks
+    public int getTileUnchecked(int pos) {
+        return tiles[pos];
     }
 
-    // overloaded helper method for getTile
-    private byte getTile(int pos) {
-        if (pos < 0 || pos >= tiles.length) {
-            System.out.println("Error: position out of the board");
-            System.exit(0);
+    @Override
+    // mutator for a tile without bounds checks
+    public void setTileUnchecked(int pos, int value) {
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            invalidTile = value;
         }
 
-        return tiles[pos];
+        trackSet(pos, tiles[pos], value);
+        tiles[pos] = (byte) value;
     }
 
     @Override
-    // mutator for a specific tile
-    public void setTile(int col, int row, byte value) {
-        setTile(row * getSize()  + col, value);
+    // accessor for the position of the empty space
+    public int getEmptyPosition() {
+        return emptyPos;
     }
 
-    // overloaded helper method for setTile
-    private void setTile(int pos, byte value) {
-        if (pos < 0 || pos >= tiles.length) {
-            System.out.println("Error: position out of the board");
-            System.exit(0);
+    @Override
+    /** Reports tile values that were too large to be stored before performing the usual checks. */
+    public void ensureValidity() throws InvalidConfigurationException {
+        if (invalidTile != 0) {
+            throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + invalidTile);
         }
-
-        tiles[pos] = value;
+        super.ensureValidity();
     }
 
     @Override
@@ -0,0 +1,162 @@
+/** A class that solves every configuration of a ConfigurationStore on all available cores. Configurations are
+ * handed to a work-stealing ForkJoinPool largest first, so the slowest boards do not end up running alone at the
+ * end. Each result is appended to the results file as soon as it is available, one line per configuration:
+ *
+ *     index size length nodes ms status
+ *
+ * where index is the number of the configuration in getConfigurationsSizeSorted (as used by 'c X' in NPuzzle),
+ * length is -1 for boards without a solution and status is one of solved, timeout, cancelled, unsolvable or invalid. */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+public class BatchSolver {
+    private ConfigurationStore store;
+    private IntFunction<Heuristic> heuristics;  // creates a fresh heuristic for a given board size
+    private long timeLimit;                     // the number of milliseconds each configuration may take, 0 for no limit
+    private int parallelism;
+    private Set<Solver> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    // Constructor for BatchSolver
+    public BatchSolver(ConfigurationStore store, long timeLimit) {
+        this(store, LinearConflictHeuristic::new, timeLimit, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Constructor for BatchSolver
+    public BatchSolver(ConfigurationStore store, IntFunction<Heuristic> heuristics, long timeLimit, int parallelism) {
+        this.store = store;
+        this.heuristics = heuristics;
+        this.timeLimit = timeLimit;
+        this.parallelism = parallelism;
+    }
+
+    /** Stops the batch: running searches are aborted and configurations that have not started are skipped. */
+    public void cancel() {
+        cancelled = true;
+        for (Solver solver : running) {
+            solver.cancel();
+        }
+    }
+
+    /**
+     * Solves all configurations of the store and streams the results to a file.
+     * @param filename the file the results are written to
+     */
+    public void solveAll(String filename) throws IOException, InterruptedException {
+        try (Writer out = new BufferedWriter(new FileWriter(filename))) {
+            solveAll(out);
+        }
+    }
+
+    /**
+     * Solves all configurations of the store and streams the results to 'out', which is flushed after every line.
+     * Returns once every configuration has been solved, has timed out or has been skipped.
+     */
+    public void solveAll(Writer out) throws IOException, InterruptedException {
+        List<Configuration> configs = store.getConfigurationsSizeSorted();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            synchronized (out) {
+                out.write("# index size length nodes ms status\n");
+                out.flush();
+            }
+
+            List<Future<?>> results = new ArrayList<>(configs.size());
+            for (int i = configs.size() - 1; i >= 0; i--) {
+                int index = i;
+                Configuration configuration = configs.get(i);
+                results.add(pool.submit(() -> {
+                    String line = solveOne(index, configuration);
+                    synchronized (out) {
+                        out.write(line);
+                        out.flush();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        cancel();
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Solves a single configuration and returns its line of the results file. */
+    private String solveOne(int index, Configuration configuration) {
+        int size = configuration.getSize();
+        if (cancelled) {
+            return index + " " + size + " -1 0 0 cancelled\n";
+        }
+
+        Tiles tiles;
+        try {
+            tiles = configuration.createTiles();
+        } catch (ConfigurationFormatException | InvalidConfigurationException e) {
+            return index + " " + size + " -1 0 0 invalid\n";
+        }
+
+        Solver solver = new Solver(tiles, heuristics.apply(size));
+        solver.setTimeLimit(timeLimit);
+        running.add(solver);
+        if (cancelled) {
+            solver.cancel();
+        }
+        try {
+            List<Tiles.Direction> solution = solver.solve();
+            return index + " " + size + " " + solution.size() + " " + solver.getNodesExpanded() + " " +
+                    solver.getElapsedTime() + " solved\n";
+        } catch (InvalidConfigurationException e) {
+            return index + " " + size + " -1 0 0 unsolvable\n";
+        } catch (SearchAbortedException e) {
+            return index + " " + size + " -1 " + solver.getNodesExpanded() + " " + solver.getElapsedTime() + " " +
+                    (cancelled ? "cancelled" : "timeout") + "\n";
+        } finally {
+            running.remove(solver);
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: java BatchSolver <path/url to store> <results file> [time limit in ms]");
+            return;
+        }
+        try {
+            Metrics.startFromProperties();
+            ConfigurationStore cs = new ConfigurationStore(args[0]);
+            if (cs.getLoadReport() != null) {
+                for (LoadReport.LineError error : cs.getLoadReport().getErrors()) {
+                    System.out.println(error);
+                }
+            }
+            long timeLimit = args.length == 3 ? Long.parseLong(args[2]) : 0;
+            BatchSolver batch = new BatchSolver(cs, timeLimit);
+            Runtime.getRuntime().addShutdownHook(new Thread(batch::cancel));
+            batch.solveAll(args[1]);
+        } catch (IOException ioe) {
+            System.out.println("Failed to load configuration store or write results");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/** A class of micro-benchmarks for the hot paths of the puzzle. Every benchmark is warmed up before it is measured
+ * and reports the average time per operation. Run all of them with 'java Benchmarks' or pick some groups by name,
+ * e.g. 'java Benchmarks parse copy'. The groups are parse, validate, tiles, copy and reduction. With
+ * '-json <file>' the results are also written as a JSON array of {"benchmark", "nsPerOp"} objects for regression
+ * tracking. */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class Benchmarks {
+    private static final long WARMUP_NANOS = 200_000_000L;
+    private static final long MEASURED_NANOS = 300_000_000L;
+    private static final int LINES = 10000;
+    private static final int MIN_SIZE = 3;
+    private static final int MAX_SIZE = 8;
+    private static final int MOVES = 10000;
+
+    private static long sink;       // consumes results so that the JIT cannot drop the measured work
+    private static Map<String, Double> results = new LinkedHashMap<>();
+
+    // the work of a single round of a benchmark
+    private interface Round {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs 'round' repeatedly for a fixed time to warm it up, then for a fixed time while measuring it,
+     * and prints the average time of one of its operations.
+     * @param name the name printed in front of the result
+     * @param operations the number of operations a single round performs
+     */
+    private static void measure(String name, int operations, Round round) throws Exception {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < WARMUP_NANOS) {
+            round.run();
+        }
+
+        long rounds = 0;
+        long elapsed;
+        start = System.nanoTime();
+        do {
+            round.run();
+            rounds++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURED_NANOS);
+
+        double perOperation = (double) elapsed / (rounds * operations);
+        results.put(name, perOperation);
+        System.out.printf("%-40s %12.1f ns/op%n", name, perOperation);
+    }
+
+    /** Returns a configuration line for a random permutation of the tiles of a board of the given size. */
+    private static String randomLine(int size, Random random) {
+        List<Integer> values = new ArrayList<>(size * size);
+        for (int i = 0; i < size * size; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, random);
+
+        StringBuilder line = new StringBuilder();
+        line.append(size).append(':');
+        for (int i = 0; i < size * size; i++) {
+            if (i > 0 && i % size == 0) {
+                line.append(" :");
+            }
+            line.append(' ').append(values.get(i));
+        }
+
+        return line.toString();
+    }
+
+    /** Compares the single-pass ConfigurationParser with the former String.split based parsing. */
+    private static void parse() throws Exception {
+        Random random = new Random(42);
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            int n = size;
+            String[] lines = new String[LINES];
+            String[] data = new String[LINES];
+            for (int i = 0; i < LINES; i++) {
+                lines[i] = randomLine(size, random);
+                data[i] = lines[i].substring(lines[i].indexOf(":") + 2);
+            }
+            byte[] values = new byte[size * size];
+
+            measure("parse/split " + size + "x" + size, LINES, () -> {
+                for (String d : data) {
+                    splitParse(d, n, values);
+                    sink += values[0];
+                }
+            });
+            measure("parse/single-pass " + size + "x" + size, LINES, () -> {
+                for (String d : data) {
+                    ConfigurationParser.validate(d, n);
+                    ConfigurationParser.fill(d, n, values);
+                    sink += values[0];
+                }
+            });
+            measure("parse/configuration " + size + "x" + size, LINES, () -> {
+                for (String line : lines) {
+                    new Configuration(line).getValues(values);
+                    sink += values[0];
+                }
+            });
+        }
+    }
+
+    /** Returns a board of every implementation of Tiles that can hold 'configuration'. */
+    private static List<Tiles> implementations(Configuration configuration)
+            throws ConfigurationFormatException, InvalidConfigurationException {
+        List<Tiles> boards = new ArrayList<>();
+        boards.add(new ArrayTiles(configuration));
+        boards.add(new MatrixTiles(configuration));
+        if (configuration.getSize() <= LongTiles.MAX_SIZE) {
+            boards.add(new LongTiles(configuration));
+        }
+        if (configuration.getSize() <= LongPairTiles.MAX_SIZE) {
+            boards.add(new LongPairTiles(configuration));
+        }
+        boards.add(new ShortTiles(configuration));
+
+        return boards;
+    }
+
+    /** Returns a copy of 'tiles' made with the copy constructor of its class. */
+    private static Tiles copyConstruct(Tiles tiles) {
+        if (tiles instanceof MatrixTiles) {
+            return new MatrixTiles((MatrixTiles) tiles);
+        }
+        if (tiles instanceof LongTiles) {
+            return new LongTiles((LongTiles) tiles);
+        }
+        if (tiles instanceof LongPairTiles) {
+            return new LongPairTiles((LongPairTiles) tiles);
+        }
+        if (tiles instanceof ShortTiles) {
+            return new ShortTiles((ShortTiles) tiles);
+        }
+        return new ArrayTiles((ArrayTiles) tiles);
+    }
+
+    /** Measures moves, tile access and the board checks of every Tiles implementation. */
+    private static void tiles() throws Exception {
+        Random random = new Random(42);
+        Tiles.Direction[] directions = new Tiles.Direction[MOVES];
+        for (int i = 0; i < MOVES; i++) {
+            directions[i] = Tiles.Direction.values()[random.nextInt(4)];
+        }
+
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            int n = size;
+            Configuration configuration = new Configuration(randomLine(size, random));
+            for (Tiles tiles : implementations(configuration)) {
+                String suffix = " " + tiles.getClass().getSimpleName() + " " + size + "x" + size;
+                measure("tiles/move" + suffix, MOVES, () -> {
+                    for (Tiles.Direction d : directions) {
+                        tiles.move(d);
+                    }
+                });
+                measure("tiles/getTile" + suffix, n * n, () -> {
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            sink += tiles.getTile(j, i);
+                        }
+                    }
+                });
+                measure("tiles/setTile" + suffix, n * n, () -> {
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            tiles.setTile(j, i, tiles.getTile(j, i));
+                        }
+                    }
+                });
+                measure("tiles/isSolved" + suffix, 1, () -> sink += tiles.isSolved() ? 1 : 0);
+                measure("tiles/isSolvable" + suffix, 1, () -> sink += tiles.isSolvable() ? 1 : 0);
+                measure("tiles/ensureValidity" + suffix, 1, tiles::ensureValidity);
+            }
+        }
+    }
+
+    /** Compares copying boards with clone, as done for the checkpoints of MoveHistory, and with the copy constructors. */
+    private static void copy() throws Exception {
+        Random random = new Random(42);
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            Configuration configuration = new Configuration(randomLine(size, random));
+            for (Tiles tiles : implementations(configuration)) {
+                String suffix = " " + tiles.getClass().getSimpleName() + " " + size + "x" + size;
+                measure("copy/clone" + suffix, 1, () -> sink += tiles.clone().getMoveCount());
+                measure("copy/constructor" + suffix, 1, () -> sink += copyConstruct(tiles).getMoveCount());
+            }
+        }
+    }
+
+    /** Measures how long ReductionSolver takes for random boards of sizes 6 to 30. */
+    private static void reduction() throws Exception {
+        int boards = 10;
+        for (int size : new int[] { 6, 8, 10, 12, 15, 20, 25, 30 }) {
+            BoardGenerator generator = new BoardGenerator(size, 42);
+            Tiles[] tiles = new Tiles[boards];
+            long moves = 0;
+            for (int i = 0; i < boards; i++) {
+                int[] values = generator.generate(i);
+                StringBuilder line = new StringBuilder().append(size).append(':');
+                for (int pos = 0; pos < values.length; pos++) {
+                    line.append(pos > 0 && pos % size == 0 ? " : " : " ").append(values[pos]);
+                }
+                tiles[i] = new Configuration(line.toString()).createTiles();
+                moves += new ReductionSolver(tiles[i]).solve().size();
+            }
+
+            measure("reduction/solve " + size + "x" + size, boards, () -> {
+                for (Tiles t : tiles) {
+                    sink += new ReductionSolver(t).solve().size();
+                }
+            });
+            System.out.printf("%-40s %12d moves%n", "reduction/length " + size + "x" + size, moves / boards);
+        }
+    }
+
+    /** The parsing previously done by Configuration: split for the checks, split again to read the tiles. */
+    private static void splitParse(String data, int size, byte[] values) throws ConfigurationFormatException {
+        String[] arr = data.split(" ");
+        int rows = 1;
+        int columns = -1;
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i].equals(":")) {
+                rows++;
+                if (columns < 0) {
+                    columns = i;
+                }
+            } else {
+                try {
+                    Integer.parseInt(arr[i]);
+                } catch (NumberFormatException e) {
+                    throw new ConfigurationFormatException("Malformed configuration '" + data + "'.");
+                }
+            }
+        }
+        if (rows != size || (columns < 0 ? arr.length : columns) != size) {
+            throw new ConfigurationFormatException();
+        }
+
+        arr = data.split(" ");
+        int c = 0;
+        for (int i = 0; i < size * size; i++) {
+            if (arr[c].equals(":") || arr[c].equals("")) {
+                c++;
+            }
+            values[i] = Byte.valueOf(arr[c++]);
+        }
+    }
+
+    /** Compares BoardValidator with the former quadratic validity and solvability checks on large boards. */
+    private static void validate() throws Exception {
+        Random random = new Random(42);
+        BoardValidator validator = new BoardValidator();
+        for (int size = 5; size <= 11; size += 2) {
+            int n = size;
+            int boards = 1000;
+            int[][] values = new int[boards][size * size];
+            for (int i = 0; i < boards; i++) {
+                String line = randomLine(size, random);
+                ConfigurationParser.fill(line.substring(line.indexOf(":") + 2), size, values[i]);
+            }
+
+            measure("validate/quadratic " + size + "x" + size, boards, () -> {
+                for (int[] v : values) {
+                    sink += quadraticValidate(v, n) ? 1 : 0;
+                }
+            });
+            measure("validate/linear " + size + "x" + size, boards, () -> {
+                for (int[] v : values) {
+                    sink += validator.validate(v, n) ? 1 : 0;
+                }
+            });
+        }
+    }
+
+    /** The checks previously done by Tiles: three scans with a boxed list, then counting inversions. */
+    private static boolean quadraticValidate(int[] values, int size) throws InvalidConfigurationException {
+        for (int value : values) {
+            if (value < 0 || value >= values.length) {
+                throw new InvalidConfigurationException();
+            }
+        }
+        int empties = 0;
+        for (int value : values) {
+            if (value == Tiles.EMPTY && ++empties > 1) {
+                throw new InvalidConfigurationException();
+            }
+        }
+        ArrayList<Integer> container = new ArrayList<>(values.length);
+        for (int value : values) {
+            if (container.contains(value)) {
+                throw new InvalidConfigurationException();
+            }
+            container.add(value);
+        }
+
+        int inversions = 0;
+        int blankRow = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == Tiles.EMPTY) {
+                blankRow = i / size;
+            }
+            for (int j = i + 1; j < values.length; j++) {
+                if (values[j] != Tiles.EMPTY && values[j] < values[i]) {
+                    inversions++;
+                }
+            }
+        }
+        boolean even = inversions % 2 == 0;
+        return size % 2 == 1 ? even : ((size - blankRow) % 2 == 0) != even;
+    }
+
+    /** Writes all results measured so far to a file as a JSON array. */
+    private static void writeJson(String filename) throws IOException {
+        try (Writer out = new FileWriter(filename)) {
+            out.write("[\n");
+            int i = 0;
+            for (Map.Entry<String, Double> result : results.entrySet()) {
+                out.write(String.format("  {\"benchmark\": \"%s\", \"nsPerOp\": %.3f}%s%n",
+                        result.getKey(), result.getValue(), ++i < results.size() ? "," : ""));
+            }
+            out.write("]\n");
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+        List<String> selected = new ArrayList<>(List.of(args));
+        String json = null;
+        int flag = selected.indexOf("-json");
+        if (flag >= 0) {
+            if (flag + 1 >= selected.size()) {
+                System.out.println("Usage: java Benchmarks [-json <file>] [parse] [validate] [tiles] [copy] [reduction]");
+                return;
+            }
+            json = selected.get(flag + 1);
+            selected.subList(flag, flag + 2).clear();
+        }
+
+        if (selected.isEmpty() || selected.contains("parse")) {
+            parse();
+        }
+        if (selected.isEmpty() || selected.contains("validate")) {
+            validate();
+        }
+        if (selected.isEmpty() || selected.contains("tiles")) {
+            tiles();
+        }
+        if (selected.isEmpty() || selected.contains("copy")) {
+            copy();
+        }
+        if (selected.isEmpty() || selected.contains("reduction")) {
+            reduction();
+        }
+        System.out.println("(checksum " + sink + ")");
+        if (json != null) {
+            writeJson(json);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/** A class that computes an optimal sequence of moves for boards of size up to 4 with a bidirectional
+ * breadth-first search, one search growing from the board and one from the solved board until they meet.
+ * Boards are packed into longs as in LongTiles and visited boards are kept in LongIntHashMaps, so no object is
+ * created per visited board. Each map entry holds the depth of the board and the direction of the move that
+ * reached it.
+ *
+ * When a map reaches its share of the memory limit, boards more than one level behind its frontier are evicted.
+ * Those are no longer needed to recognise repeated boards, and the part of the path that ran through them is
+ * recovered afterwards with a smaller search. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BidirectionalSolver {
+    public static final long DEFAULT_MEMORY_LIMIT = 256L << 20;
+    private static final Tiles.Direction[] DIRECTIONS = Tiles.Direction.values();
+    private static final int ROOT = 4;              // the direction stored for the first board of a search
+    private static final int DEPTH_SHIFT = 3;       // map values hold depth << DEPTH_SHIFT | direction
+    private static final int CHECK_INTERVAL = 4096;
+    private static final Metrics.Histogram SEARCH_TIME = Metrics.histogram("solver.bidirectional.ms");
+    private static final Metrics.Counter NODES = Metrics.counter("solver.bidirectional.nodes");
+
+    private Tiles start;
+    private int size;
+    private int cells;
+    private long lowNibbles;    // a 1 in the lowest bit of every field used by the board
+    private long memoryLimit;
+    private long nodesExpanded;
+    private long elapsedTime;
+    private long peakMemory;
+    private volatile boolean cancelled;
+
+    // one direction of the search: the boards it visited and the boards of its current frontier
+    private class Side {
+        LongIntHashMap visited;
+        long[] frontier = new long[16];
+        int frontierSize;
+        int depth;
+
+        Side(long root) {
+            visited = new LongIntHashMap(1024);
+            visited.putIfAbsent(root, ROOT);
+            frontier[frontierSize++] = root;
+        }
+    }
+
+    // Constructor for BidirectionalSolver
+    public BidirectionalSolver(Tiles tiles) {
+        this(tiles, DEFAULT_MEMORY_LIMIT);
+    }
+
+    // Constructor for BidirectionalSolver
+    public BidirectionalSolver(Tiles tiles, long memoryLimit) {
+        this.start = tiles;
+        this.size = tiles.getSize();
+        this.cells = size * size;
+        this.memoryLimit = memoryLimit;
+        for (int pos = 0; pos < cells; pos++) {
+            lowNibbles |= 1L << (pos * 4);
+        }
+    }
+
+    // accessor for the number of boards expanded by the last search
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    // accessor for the wall-clock time in milliseconds taken by the last search
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    // accessor for the largest number of bytes held by the maps and frontiers during the last search
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+
+    /** Returns the number of boards expanded per second by the last search. */
+    public long getNodesPerSecond() {
+        return nodesExpanded * 1000 / Math.max(1, elapsedTime);
+    }
+
+    /**
+     * Asks a running search to stop. Safe to call from any thread; the search throws SearchAbortedException.
+     * The next call of solve searches again.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Computes an optimal solution for the board. Applying the returned directions in order with
+     * Tiles.move solves the board.
+     * @return the shortest list of moves that solves the board
+     * @throws InvalidConfigurationException if the board is larger than 4x4 or cannot be solved
+     * @throws SearchAbortedException if the memory limit was exceeded or the search was cancelled
+     */
+    public List<Tiles.Direction> solve() throws InvalidConfigurationException, SearchAbortedException {
+        if (size > LongTiles.MAX_SIZE) {
+            throw new InvalidConfigurationException("Invalid configuration: the bidirectional solver supports " +
+                    "boards of size up to " + LongTiles.MAX_SIZE + " (found " + size + ").");
+        }
+        if (!start.isSolvable()) {
+            throw new InvalidConfigurationException("Invalid configuration: the puzzle is not solvable.");
+        }
+
+        long startTime = System.currentTimeMillis();
+        cancelled = false;
+        nodesExpanded = 0;
+        peakMemory = 0;
+        long board = 0;
+        long goal = 0;
+        for (int pos = 0; pos < cells; pos++) {
+            board = LongTiles.withTile(board, pos, start.getTileUnchecked(pos));
+            goal = LongTiles.withTile(goal, pos, (pos + 1) % cells);
+        }
+
+        try {
+            return search(board, goal);
+        } finally {
+            elapsedTime = System.currentTimeMillis() - startTime;
+            recordMetrics();
+        }
+    }
+
+    /** Finds a shortest sequence of moves leading from 'from' to 'to'. */
+    private List<Tiles.Direction> search(long from, long to) throws SearchAbortedException {
+        if (from == to) {
+            return new ArrayList<>();
+        }
+
+        Side forward = new Side(from);
+        Side backward = new Side(to);
+        long meeting = 0;
+        int best = -1;
+        while (best < 0) {
+            Side side = forward.frontierSize <= backward.frontierSize ? forward : backward;
+            Side other = side == forward ? backward : forward;
+            long[] next = new long[Math.max(16, side.frontierSize * 2)];
+            int nextSize = 0;
+            int depth = side.depth + 1;
+
+            for (int f = 0; f < side.frontierSize; f++) {
+                long current = side.frontier[f];
+                int empty = emptyPosition(current);
+                nodesExpanded++;
+                if (nodesExpanded % CHECK_INTERVAL == 0 && cancelled) {
+                    throw new SearchAbortedException("Search aborted: cancelled.");
+                }
+
+                for (int d = 0; d < DIRECTIONS.length; d++) {
+                    int tile = tilePosition(empty, DIRECTIONS[d]);
+                    if (tile < 0) {
+                        continue;
+                    }
+                    long child = move(current, empty, tile);
+                    if (side.visited.get(child) >= 0) {
+                        continue;
+                    }
+
+                    makeRoom(side, other, next.length);
+                    side.visited.putIfAbsent(child, depth << DEPTH_SHIFT | d);
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = child;
+
+                    int found = other.visited.get(child);
+                    if (found >= 0 && (best < 0 || depth + (found >>> DEPTH_SHIFT) < best)) {
+                        best = depth + (found >>> DEPTH_SHIFT);
+                        meeting = child;
+                    }
+                }
+            }
+
+            if (nextSize == 0) {
+                throw new IllegalStateException("Search space exhausted without meeting");
+            }
+            side.frontier = next;
+            side.frontierSize = nextSize;
+            side.depth = depth;
+        }
+
+        List<Tiles.Direction> path = pathTo(from, meeting, forward.visited);
+        path.addAll(pathFrom(meeting, to, backward.visited));
+        return path;
+    }
+
+    /** Evicts old levels of the side about to grow if the maps would otherwise exceed the memory limit. */
+    private void makeRoom(Side side, Side other, int nextCapacity) throws SearchAbortedException {
+        LongIntHashMap map = side.visited;
+        long frontiers = (long) (side.frontier.length + other.frontier.length + nextCapacity) * Long.BYTES;
+        long used = map.memoryUsage() + other.visited.memoryUsage() + frontiers;
+        peakMemory = Math.max(peakMemory, used);
+
+        // the map doubles its arrays once it is half full
+        long capacity = map.memoryUsage() / (Long.BYTES + Integer.BYTES);
+        if ((map.size() + 1) * 2L <= capacity || used + map.memoryUsage() <= memoryLimit) {
+            return;
+        }
+
+        // neighbours of the frontier lie one level above or below it, so older levels are not needed any more
+        map.removeValuesBelow((side.depth - 1) << DEPTH_SHIFT);
+        if ((map.size() + 1) * 2L > capacity) {
+            throw new SearchAbortedException("Search aborted: memory limit of " + memoryLimit + " bytes exceeded.");
+        }
+    }
+
+    /** Returns the moves from 'from' to 'board' recorded in 'visited', recovering evicted parts with a new search. */
+    private List<Tiles.Direction> pathTo(long from, long board, LongIntHashMap visited) throws SearchAbortedException {
+        List<Tiles.Direction> path = new ArrayList<>();
+        long current = board;
+        while (current != from) {
+            int value = visited.get(current);
+            if (value < 0) {
+                List<Tiles.Direction> prefix = search(from, current);
+                Collections.reverse(prefix);
+                path.addAll(prefix);
+                break;
+            }
+            Tiles.Direction direction = DIRECTIONS[value & 3];
+            path.add(direction);
+            int empty = emptyPosition(current);
+            current = move(current, empty, tilePosition(empty, direction.opposite()));
+        }
+
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Returns the moves from 'board' to 'to' recorded in 'visited', recovering evicted parts with a new search. */
+    private List<Tiles.Direction> pathFrom(long board, long to, LongIntHashMap visited) throws SearchAbortedException {
+        List<Tiles.Direction> path = new ArrayList<>();
+        long current = board;
+        while (current != to) {
+            int value = visited.get(current);
+            if (value < 0) {
+                path.addAll(search(current, to));
+                break;
+            }
+            Tiles.Direction direction = DIRECTIONS[value & 3].opposite();
+            path.add(direction);
+            int empty = emptyPosition(current);
+            current = move(current, empty, tilePosition(empty, direction));
+        }
+
+        return path;
+    }
+
+    /** Returns the position of the tile that a move in 'direction' slides into the empty space, or -1 if none. */
+    private int tilePosition(int empty, Tiles.Direction direction) {
+        int col = empty % size;
+        int row = empty / size;
+        switch (direction) {
+            case UP:
+                return row + 1 < size ? empty + size : -1;
+            case RIGHT:
+                return col > 0 ? empty - 1 : -1;
+            case DOWN:
+                return row > 0 ? empty - size : -1;
+            default:
+                return col + 1 < size ? empty + 1 : -1;
+        }
+    }
+
+    /** Returns the position of the empty field of a packed board: the only field whose four bits are all 0. */
+    private int emptyPosition(long board) {
+        long zeros = ~board;
+        zeros &= zeros >>> 2;
+        zeros &= zeros >>> 1;
+        return Long.numberOfTrailingZeros(zeros & lowNibbles) / 4;
+    }
+
+    /** Returns the packed board after sliding the tile at position 'tile' into the empty field at 'empty'. */
+    private static long move(long board, int empty, int tile) {
+        long value = (board >>> (tile * 4)) & 0xF;
+        return (board & ~(0xFL << (tile * 4))) | (value << (empty * 4));
+    }
+
+    // adds the last search to the metrics
+    private void recordMetrics() {
+        if (Metrics.ENABLED) {
+            SEARCH_TIME.record(elapsedTime);
+            NODES.add(nodesExpanded);
+        }
+    }
+}
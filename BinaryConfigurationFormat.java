@@ -0,0 +1,319 @@
+/** A class for the binary store format, a compact alternative to one text line per configuration.
+ * All numbers are big-endian:
+ *
+ *     int magic ("NPZB"), int version, int record count, int section count
+ *     for each section: int size, int record count, byte bits per tile (4, 8 or 16)
+ *     the records of every section in turn, each the tiles row by row packed into (size * size * bits + 7) / 8 bytes
+ *     int CRC32 of everything before it
+ *
+ * Boards with more than 128 cells use 16 bits per tile, read as unsigned numbers, so boards of size up to MAX_SIZE
+ * fit. Sections appear in increasing order of size and keep the order of their configurations, so reading a file
+ * yields the configurations already in the order of ConfigurationStore.getConfigurationsSizeSorted. */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class BinaryConfigurationFormat {
+    public static final int MAGIC = 0x4E505A42;     // "NPZB"
+    public static final int MAX_SIZE = 256;
+    private static final int VERSION = 1;
+
+    /** Checks if the file starts with the magic number of the binary format. */
+    public static boolean isBinary(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            return file.length() >= 4 && file.readInt() == MAGIC;
+        }
+    }
+
+    /** Returns the number of bits used for each tile of the boards of a section. */
+    private static int bitsPerTile(int size, List<int[]> boards) {
+        if (size * size > 16) {
+            return bitsPerTile(size);
+        }
+        for (int[] values : boards) {
+            for (int value : values) {
+                if (value < 0 || value > 15) {
+                    return 8;
+                }
+            }
+        }
+
+        return 4;
+    }
+
+    /** Returns the smallest number of bits of whole bytes that holds every tile of a board of 'size'. */
+    private static int bitsPerTile(int size) {
+        return size * size - 1 <= Byte.MAX_VALUE ? 8 : 16;
+    }
+
+    // rejects boards whose tiles do not fit into 16 bits
+    private static void checkSize(int size) throws InvalidConfigurationException {
+        if (size > MAX_SIZE) {
+            throw new InvalidConfigurationException("Invalid configuration: boards of size " + size +
+                    " do not fit into the binary format (at most " + MAX_SIZE + ").");
+        }
+    }
+
+    // rejects boards with a tile value that does not fit into the board, which the record would truncate
+    private static void checkValues(int[] values, int size) throws InvalidConfigurationException {
+        for (int value : values) {
+            if (value < 0 || value >= size * size) {
+                throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + value);
+            }
+        }
+    }
+
+    /**
+     * Writes configurations to a file in the binary format.
+     * @throws InvalidConfigurationException if a configuration is larger than MAX_SIZE or has a tile value that does
+     * not fit into its board
+     */
+    public static void write(List<Configuration> configs, String filename)
+            throws IOException, InvalidConfigurationException {
+        TreeMap<Integer, List<int[]>> sections = new TreeMap<>();
+        for (Configuration c : configs) {
+            checkSize(c.getSize());
+            int[] values = new int[c.getSize() * c.getSize()];
+            c.getValues(values);
+            checkValues(values, c.getSize());
+            sections.computeIfAbsent(c.getSize(), s -> new ArrayList<>()).add(values);
+        }
+
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(filename)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(configs.size());
+            out.writeInt(sections.size());
+            for (int size : sections.keySet()) {
+                out.writeInt(size);
+                out.writeInt(sections.get(size).size());
+                out.writeByte(bitsPerTile(size, sections.get(size)));
+            }
+
+            for (int size : sections.keySet()) {
+                List<int[]> boards = sections.get(size);
+                int bits = bitsPerTile(size, boards);
+                for (int[] values : boards) {
+                    writeRecord(out, values, bits);
+                }
+            }
+
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+    }
+
+    // writes the tiles of one board with the given number of bits per tile
+    private static void writeRecord(DataOutputStream out, int[] values, int bits) throws IOException {
+        if (bits == 16) {
+            for (int value : values) {
+                out.writeShort(value);
+            }
+            return;
+        }
+        if (bits == 8) {
+            for (int value : values) {
+                out.writeByte(value);
+            }
+            return;
+        }
+        for (int i = 0; i < values.length; i += 2) {
+            int high = values[i] << 4;
+            int low = i + 1 < values.length ? values[i + 1] : 0;
+            out.writeByte(high | low);
+        }
+    }
+
+    /** A writer for a file with a single section whose number of configurations is known in advance, so that the
+     * boards can be written as they are produced instead of being collected in a list first. Boards with up to 16
+     * cells are packed into 4 bits per tile, boards with more than 128 cells take 16 bits per tile. */
+    public static class SectionWriter implements Closeable {
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+        private final CRC32 crc = new CRC32();
+        private final int size;
+        private final int count;
+        private final int bits;
+        private int written;
+
+        // Constructor for SectionWriter
+        public SectionWriter(String filename, int size, int count) throws IOException, InvalidConfigurationException {
+            checkSize(size);
+            this.size = size;
+            this.count = count;
+            this.bits = size * size > 16 ? bitsPerTile(size) : 4;
+            file = new FileOutputStream(filename);
+            out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            out.writeInt(count == 0 ? 0 : 1);
+            if (count > 0) {
+                out.writeInt(size);
+                out.writeInt(count);
+                out.writeByte(bits);
+            }
+        }
+
+        /**
+         * Writes the next board, given row by row.
+         * @throws InvalidConfigurationException if a tile value does not fit into the board
+         */
+        public void write(int[] values) throws IOException, InvalidConfigurationException {
+            if (values.length != size * size) {
+                throw new IllegalArgumentException("Expected a board of size " + size);
+            }
+            checkValues(values, size);
+            if (written == count) {
+                throw new IOException("More configurations written than announced (" + count + ")");
+            }
+            writeRecord(out, values, bits);
+            written++;
+        }
+
+        @Override
+        /**
+         * Writes the checksum and closes the file.
+         * @throws IOException if fewer configurations were written than announced
+         */
+        public void close() throws IOException {
+            try {
+                if (written != count) {
+                    throw new IOException("Only " + written + " of " + count + " configurations were written");
+                }
+                out.flush();
+                new DataOutputStream(file).writeInt((int) crc.getValue());
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * Reads all configurations of a file in the binary format.
+     * @throws IOException if the file cannot be read, is not in the binary format or fails its checksum
+     */
+    public static List<Configuration> read(String filename) throws IOException {
+        ByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary store too large: " + filename);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < 20 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary configuration store: " + filename);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(buffer.limit() - 4));
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw new IOException("Checksum mismatch in binary configuration store: " + filename);
+        }
+
+        buffer.position(4);
+        if (buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported binary configuration store version: " + filename);
+        }
+        int records = buffer.getInt();
+        int[] sizes = new int[buffer.getInt()];
+        int[] counts = new int[sizes.length];
+        int[] bits = new int[sizes.length];
+        for (int s = 0; s < sizes.length; s++) {
+            sizes[s] = buffer.getInt();
+            counts[s] = buffer.getInt();
+            bits[s] = buffer.get();
+            if (bits[s] != 4 && bits[s] != 8 && bits[s] != 16 || sizes[s] < 1 || sizes[s] > MAX_SIZE) {
+                throw new IOException("Corrupt section header in binary configuration store: " + filename);
+            }
+        }
+
+        List<Configuration> configs = new ArrayList<>(records);
+        for (int s = 0; s < sizes.length; s++) {
+            int cells = sizes[s] * sizes[s];
+            for (int r = 0; r < counts[s]; r++) {
+                if (bits[s] == 16) {
+                    configs.add(readWideRecord(buffer, sizes[s], filename));
+                    continue;
+                }
+                byte[] values = new byte[cells];
+                if (bits[s] == 8) {
+                    buffer.get(values);
+                } else {
+                    for (int i = 0; i < cells; i += 2) {
+                        int packed = buffer.get();
+                        values[i] = (byte) ((packed >> 4) & 0xF);
+                        if (i + 1 < cells) {
+                            values[i + 1] = (byte) (packed & 0xF);
+                        }
+                    }
+                }
+                configs.add(new Configuration(sizes[s], values));
+            }
+        }
+
+        return configs;
+    }
+
+    /**
+     * Reads a record of 16 bits per tile, whose tiles do not fit into the bytes a Configuration keeps for binary
+     * stores, as the text of the board instead.
+     */
+    private static Configuration readWideRecord(ByteBuffer buffer, int size, String filename) throws IOException {
+        StringBuilder line = new StringBuilder(size * size * 6).append(size).append(':');
+        for (int i = 0; i < size * size; i++) {
+            line.append(i > 0 && i % size == 0 ? " :" : "").append(' ').append(buffer.getShort() & 0xFFFF);
+        }
+        try {
+            return new Configuration(line.toString());
+        } catch (ConfigurationFormatException e) {
+            throw new IOException("Corrupt record in binary configuration store: " + filename, e);
+        }
+    }
+
+    /** Writes configurations to a file in the text format read by ConfigurationStore, one per line. */
+    public static void writeText(List<Configuration> configs, String filename) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(filename))) {
+            for (Configuration c : configs) {
+                out.write(c.getSize() + ": " + c.getData() + "\n");
+            }
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 2) {
+            System.out.println("Usage: java BinaryConfigurationFormat <input store> <output store>");
+            System.out.println("Converts a text store to the binary format and a binary store back to text.");
+            return;
+        }
+        try {
+            ConfigurationStore cs = new ConfigurationStore(args[0]);
+            if (isBinary(args[0])) {
+                writeText(cs.getConfigurationsSizeSorted(), args[1]);
+            } else {
+                write(cs.getConfigurationsSizeSorted(), args[1]);
+            }
+        } catch (IOException ioe) {
+            System.out.println("Failed to convert configuration store");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
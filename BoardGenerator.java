@@ -0,0 +1,289 @@
+/** A class that generates random solvable boards for load testing, either uniformly among all solvable boards of a
+ * size or as a random walk of a given number of moves away from the solved board. Every board gets its own
+ * SplittableRandom seeded with a hash of the seed and the number of the board, so the output only depends on the
+ * seed and not on the number of threads or the order in which they finish. Boards are generated in chunks on all
+ * available cores and streamed to a text or binary store in order, so that tens of millions of them never have to
+ * be held in memory at once. */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BoardGenerator {
+    private static final int CHUNK_SIZE = 4096;                 // the number of boards generated by one task
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;   // spreads the seeds of consecutive boards
+
+    private final int size;
+    private final long seed;
+    private int walkLength;     // the number of random moves from the solved board, 0 for uniform boards
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // turns the boards of a chunk into what is written to the store
+    private interface ChunkEncoder<T> {
+        T encode(long first, int count);
+    }
+
+    // writes an encoded chunk to the store
+    private interface ChunkSink<T> {
+        void write(T chunk) throws IOException;
+    }
+
+    // Constructor for BoardGenerator
+    public BoardGenerator(int size, long seed) {
+        if (size < 2) {
+            throw new IllegalArgumentException("Boards must have a size of at least 2");
+        }
+        this.size = size;
+        this.seed = seed;
+    }
+
+    // accessor for the size of the generated boards
+    public int getSize() {
+        return size;
+    }
+
+    // accessor for the number of random moves from the solved board, 0 for uniform boards
+    public int getWalkLength() {
+        return walkLength;
+    }
+
+    // mutator for the number of random moves from the solved board, 0 for uniform boards
+    public void setWalkLength(int walkLength) {
+        if (walkLength < 0) {
+            throw new IllegalArgumentException("The walk length cannot be negative");
+        }
+        this.walkLength = walkLength;
+    }
+
+    // mutator for the number of threads used to generate boards
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /** Returns the board with the given number, row by row. The same seed always yields the same board. */
+    public int[] generate(long index) {
+        return generate(index, new BoardValidator());
+    }
+
+    // generates a board, reusing the scratch space of 'validator'
+    private int[] generate(long index, BoardValidator validator) {
+        SplittableRandom random = new SplittableRandom(mix(seed + index * GOLDEN_GAMMA));
+        return walkLength == 0 ? uniform(random, validator) : walk(random);
+    }
+
+    /**
+     * Returns the finalisation step of MurmurHash3 applied to 'value'. Seeding with seed + index * GOLDEN_GAMMA
+     * alone would make the stream of each board that of the board before it shifted by one value, since
+     * SplittableRandom advances its state by the same constant. Distinct values give distinct results.
+     */
+    static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * Shuffles the tiles with Fisher-Yates and swaps the first two tiles that are not the empty space if the result
+     * cannot be solved. The swap flips the parity without moving the empty space, so it pairs every unsolvable
+     * board with exactly one solvable board and each solvable board is equally likely.
+     */
+    private int[] uniform(SplittableRandom random, BoardValidator validator) {
+        int cells = size * size;
+        int[] values = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            values[i] = i;
+        }
+        for (int i = cells - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+
+        if (!validator.isSolvable(values, size)) {
+            int first = values[0] == Tiles.EMPTY ? 1 : 0;
+            int second = values[first + 1] == Tiles.EMPTY ? first + 2 : first + 1;
+            int value = values[first];
+            values[first] = values[second];
+            values[second] = value;
+        }
+        return values;
+    }
+
+    /** Makes random moves from the solved board, never undoing the move made just before. */
+    private int[] walk(SplittableRandom random) {
+        int cells = size * size;
+        int[] values = new int[cells];
+        for (int i = 0; i < cells - 1; i++) {
+            values[i] = i + 1;
+        }
+        int empty = cells - 1;
+        int previous = -1;
+        int[] neighbours = new int[4];
+        for (int m = 0; m < walkLength; m++) {
+            int col = empty % size;
+            int row = empty / size;
+            int count = 0;
+            if (row > 0 && empty - size != previous) {
+                neighbours[count++] = empty - size;
+            }
+            if (row < size - 1 && empty + size != previous) {
+                neighbours[count++] = empty + size;
+            }
+            if (col > 0 && empty - 1 != previous) {
+                neighbours[count++] = empty - 1;
+            }
+            if (col < size - 1 && empty + 1 != previous) {
+                neighbours[count++] = empty + 1;
+            }
+
+            int next = neighbours[random.nextInt(count)];
+            values[empty] = values[next];
+            values[next] = Tiles.EMPTY;
+            previous = empty;
+            empty = next;
+        }
+        return values;
+    }
+
+    /**
+     * Writes 'count' boards to a file in the text format read by ConfigurationStore, one per line.
+     * @throws IOException if the file cannot be written or the generation is interrupted
+     */
+    public void writeText(String filename, long count) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            stream(count, (first, n) -> {
+                BoardValidator validator = new BoardValidator();
+                StringBuilder text = new StringBuilder(n * size * size * 4);
+                for (long i = first; i < first + n; i++) {
+                    int[] values = generate(i, validator);
+                    text.append(size).append(':');
+                    for (int pos = 0; pos < values.length; pos++) {
+                        if (pos > 0 && pos % size == 0) {
+                            text.append(" :");
+                        }
+                        text.append(' ').append(values[pos]);
+                    }
+                    text.append('\n');
+                }
+                return text.toString();
+            }, out::write);
+        }
+    }
+
+    /**
+     * Writes 'count' boards to a file in the binary format.
+     * @throws IOException if the file cannot be written or the generation is interrupted
+     * @throws InvalidConfigurationException if the boards are larger than BinaryConfigurationFormat.MAX_SIZE
+     */
+    public void writeBinary(String filename, int count) throws IOException, InvalidConfigurationException {
+        try (BinaryConfigurationFormat.SectionWriter out =
+                     new BinaryConfigurationFormat.SectionWriter(filename, size, count)) {
+            stream(count, (first, n) -> {
+                BoardValidator validator = new BoardValidator();
+                int[][] boards = new int[n][];
+                for (int i = 0; i < n; i++) {
+                    boards[i] = generate(first + i, validator);
+                }
+                return boards;
+            }, boards -> {
+                try {
+                    for (int[] values : boards) {
+                        out.write(values);
+                    }
+                } catch (InvalidConfigurationException e) {
+                    // generated boards are permutations of the tiles
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Generates the boards in chunks on a pool of threads and hands the chunks to 'sink' in order. At most two
+     * chunks per thread are pending at a time, so memory stays bounded however many boards are generated.
+     */
+    private <T> void stream(long count, ChunkEncoder<T> encoder, ChunkSink<T> sink) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+            long next = 0;
+            while (next < count || !pending.isEmpty()) {
+                while (next < count && pending.size() < 2 * parallelism) {
+                    long first = next;
+                    int n = (int) Math.min(CHUNK_SIZE, count - next);
+                    pending.add(pool.submit(() -> encoder.encode(first, n)));
+                    next += n;
+                }
+                sink.write(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Board generation was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length < 4) {
+            System.out.println("Usage: java BoardGenerator <size> <count> <seed> <output store> [-walk <moves>] " +
+                    "[-binary] [-threads <n>]");
+            System.out.println("Generates uniformly random solvable boards, or boards <moves> random moves away " +
+                    "from the solved board.");
+            return;
+        }
+        try {
+            BoardGenerator generator = new BoardGenerator(Integer.parseInt(args[0]), Long.parseLong(args[2]));
+            long count = Long.parseLong(args[1]);
+            boolean binary = false;
+            for (int i = 4; i < args.length; i++) {
+                if (args[i].equals("-walk") && i + 1 < args.length) {
+                    generator.setWalkLength(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                    generator.setParallelism(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-binary")) {
+                    binary = true;
+                } else {
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+                }
+            }
+
+            long start = System.nanoTime();
+            if (binary) {
+                if (count > Integer.MAX_VALUE) {
+                    System.out.println("The binary format holds at most " + Integer.MAX_VALUE + " configurations");
+                    return;
+                }
+                generator.writeBinary(args[3], (int) count);
+            } else {
+                generator.writeText(args[3], count);
+            }
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Generated " + count + " boards in " + ms + " ms");
+        } catch (NumberFormatException e) {
+            System.out.println("Size, count, seed, moves and threads must be numbers");
+        } catch (IOException ioe) {
+            System.out.println("Failed to write configuration store");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
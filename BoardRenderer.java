@@ -0,0 +1,49 @@
+/** A class that draws boards as text. Every frame is built in one StringBuilder, which is reused between frames,
+ * and appended with a single call, so that large boards do not cost one call per tile. The cells are as wide
+ * as the largest tile value of the board needs, and at least two characters wide. */
+
+import java.io.IOException;
+
+public class BoardRenderer {
+    private StringBuilder frame = new StringBuilder();
+    private static final Metrics.Histogram FRAME_TIME = Metrics.histogram("render.frame.ns");
+
+    /** Appends a frame showing the number of moves made and the board to 'out', without flushing it. */
+    public void append(Tiles tiles, Appendable out) throws IOException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        build(tiles);
+        out.append(frame);
+        if (Metrics.ENABLED) {
+            FRAME_TIME.recordSince(start);
+        }
+    }
+
+    // fills 'frame' with the text of a frame for 'tiles'
+    private void build(Tiles tiles) {
+        int size = tiles.getSize();
+        int width = Math.max(2, Integer.toString(size * size - 1).length());
+        frame.setLength(0);
+        frame.append("- ").append(tiles.getMoveCount()).append(" moves\n");
+        appendSeparator(size * (width + 3) + 1);
+        for (int pos = 0; pos < size * size; pos++) {
+            String value = Integer.toString(tiles.getTileUnchecked(pos));
+            frame.append("| ");
+            for (int i = value.length(); i < width; i++) {
+                frame.append(' ');
+            }
+            frame.append(value).append(' ');
+            if (pos % size == size - 1) {
+                frame.append("|\n");
+                appendSeparator(size * (width + 3) + 1);
+            }
+        }
+    }
+
+    // appends a line of dashes
+    private void appendSeparator(int length) {
+        for (int i = 0; i < length; i++) {
+            frame.append('-');
+        }
+        frame.append('\n');
+    }
+}
@@ -0,0 +1,209 @@
+/** A class that validates boards and decides whether they are solvable in time linear in the number of tiles.
+ * A single pass over the tiles checks their range, the number of empty spaces and repeated values with a bitset,
+ * and the parity of the permutation is found by counting its cycles instead of its inversions. An instance keeps
+ * its scratch space between calls so that whole stores can be checked without allocating per board; it must not
+ * be shared between threads. */
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BoardValidator {
+    private int[] values = new int[0];      // the tiles of the board being checked, row by row
+    private long[] seen = new long[0];      // a bitset of the values met so far
+
+    /** A summary of the validation of many configurations. */
+    public static class Summary {
+        private int valid;
+        private int solvable;
+        private Map<Integer, String> errors = new LinkedHashMap<>();
+
+        // accessor for the number of valid configurations
+        public int getValidCount() {
+            return valid;
+        }
+
+        // accessor for the number of valid configurations that can be solved
+        public int getSolvableCount() {
+            return solvable;
+        }
+
+        // accessor for the error message of every invalid configuration, by its position in the list
+        public Map<Integer, String> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Checks the tiles of a board.
+     * @return true if the board can be solved, false otherwise
+     * @throws InvalidConfigurationException with the message of the first problem found
+     */
+    public boolean validate(Tiles tiles) throws InvalidConfigurationException {
+        return validate(copy(tiles), tiles.getSize());
+    }
+
+    /**
+     * Checks the tiles of a board given row by row. Problems are reported in the order of Tiles.ensureValidity:
+     * a tile value out of range, then several empty spaces, then a repeated value.
+     * @return true if the board can be solved, false otherwise
+     * @throws InvalidConfigurationException with the message of the first problem found
+     */
+    public boolean validate(int[] values, int size) throws InvalidConfigurationException {
+        int cells = size * size;
+        clear(cells);
+
+        int outOfRange = -1;        // the position of the first value out of range
+        int repeated = -1;          // the position of the first repeated value
+        int empties = 0;
+        for (int pos = 0; pos < cells; pos++) {
+            int value = values[pos];
+            if (value < 0 || value >= cells) {
+                if (outOfRange < 0) {
+                    outOfRange = pos;
+                }
+                continue;
+            }
+            if (value == Tiles.EMPTY) {
+                empties++;
+            }
+            if ((seen[value >>> 6] & (1L << value)) != 0) {
+                if (repeated < 0) {
+                    repeated = pos;
+                }
+            } else {
+                seen[value >>> 6] |= 1L << value;
+            }
+        }
+
+        if (outOfRange >= 0) {
+            throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + values[outOfRange]);
+        }
+        if (empties > 1) {
+            throw new InvalidConfigurationException("Invalid configuration: multiple empty spaces.");
+        }
+        if (repeated >= 0) {
+            throw new InvalidConfigurationException("Invalid configuration: multiple tiles " +
+                    "with the value " + values[repeated] + ".");
+        }
+
+        return isSolvable(values, size);
+    }
+
+    /**
+     * Checks if a valid board can be solved.
+     * @return true if it is possible to solve the puzzle, false otherwise
+     */
+    public boolean isSolvable(Tiles tiles) {
+        return isSolvable(copy(tiles), tiles.getSize());
+    }
+
+    /**
+     * Checks if a valid board given row by row can be solved. On odd boards the tiles have to form an even
+     * permutation; on even boards the permutation has to be even exactly when the empty space is on an odd row
+     * counting from the bottom.
+     * @return true if it is possible to solve the puzzle, false otherwise
+     */
+    public boolean isSolvable(int[] values, int size) {
+        int cells = size * size;
+        int blankRow = 0;
+        for (int pos = 0; pos < cells; pos++) {
+            if (values[pos] == Tiles.EMPTY) {
+                blankRow = pos / size;
+                break;
+            }
+        }
+
+        boolean even = isEvenPermutation(values, cells);
+        if (size % 2 == 1) {
+            return even;
+        }
+
+        //if the blank is on an even row counting from the bottom
+        if ((size - blankRow) % 2 == 0) {
+            return !even;
+        }
+
+        //if the blank is on an odd row counting from the bottom
+        return even;
+    }
+
+    /**
+     * Checks if the tiles other than the empty space, read row by row, form an even permutation. The parity of a
+     * permutation of m elements with c cycles is that of m - c, so following each cycle once is enough.
+     */
+    private boolean isEvenPermutation(int[] values, int cells) {
+        // the k-th tile in reading order maps to index (value - 1); skip the blank by shifting later positions
+        clear(cells);
+        int cycles = 0;
+        int blank = 0;
+        while (blank < cells && values[blank] != Tiles.EMPTY) {
+            blank++;
+        }
+
+        for (int start = 0; start < cells - 1; start++) {
+            if ((seen[start >>> 6] & (1L << start)) != 0) {
+                continue;
+            }
+            cycles++;
+            int k = start;
+            while ((seen[k >>> 6] & (1L << k)) == 0) {
+                seen[k >>> 6] |= 1L << k;
+                k = values[k < blank ? k : k + 1] - 1;
+            }
+        }
+
+        return (cells - 1 - cycles) % 2 == 0;
+    }
+
+    /** Validates every configuration of a list, for instance all configurations of a store. */
+    public Summary validateAll(List<Configuration> configs) {
+        Summary summary = new Summary();
+        int index = 0;
+        for (Configuration c : configs) {
+            int cells = c.getSize() * c.getSize();
+            ensureCapacity(cells);
+            try {
+                c.getValues(values);
+                if (validate(values, c.getSize())) {
+                    summary.solvable++;
+                }
+                summary.valid++;
+            } catch (InvalidConfigurationException e) {
+                summary.errors.put(index, e.getMessage());
+            }
+            index++;
+        }
+
+        return summary;
+    }
+
+    // copies the tiles of a board row by row into 'values'
+    private int[] copy(Tiles tiles) {
+        int size = tiles.getSize();
+        ensureCapacity(size * size);
+        for (int pos = 0; pos < size * size; pos++) {
+            values[pos] = tiles.getTileUnchecked(pos);
+        }
+
+        return values;
+    }
+
+    // grows the scratch arrays so that they can hold boards with 'cells' tiles
+    private void ensureCapacity(int cells) {
+        if (values.length < cells) {
+            values = new int[cells];
+        }
+        if (seen.length < (cells + 63) / 64) {
+            seen = new long[(cells + 63) / 64];
+        }
+    }
+
+    // clears the bits of 'seen' used by boards with 'cells' tiles
+    private void clear(int cells) {
+        ensureCapacity(cells);
+        for (int i = 0; i < (cells + 63) / 64; i++) {
+            seen[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/** A class that carries out the text commands of NPuzzle for one GameSession and writes the replies to any
+ * Appendable, so that the same conversation can be held on a terminal or over a network connection:
+ * • l to list all the configurations with a number associated to each
+ * • c X to start playing configuration number X
+ * • UP, DOWN, LEFT, RIGHT, or q to make a move or quit once play has begun
+ * • b to move back one move unless we are already at move 0,
+ *   in which case it just prints the initial board
+ * • f to make forward one move
+ * Unknown commands are ignored, and a configuration that does not exist or cannot be played is reported instead of
+ * ending the conversation; the game being played, if any, goes on. A processor must not be used by several
+ * threads at once. */
+
+import java.io.IOException;
+
+public class CommandProcessor {
+    public static final String SELECT_PROMPT = "Please select a configuration to play (l to list):";
+    public static final String MOVE_PROMPT = "Please make a move by inputting UP, DOWN, LEFT, RIGHT;\n" +
+            "or stop the game by inputting q: ";
+
+    private final GameSession session;
+    private final BoardRenderer renderer = new BoardRenderer();
+
+    // Constructor for CommandProcessor
+    public CommandProcessor(ConfigurationStore store) {
+        this.session = new GameSession(store);
+    }
+
+    // accessor for the session the commands are carried out on
+    public GameSession getSession() {
+        return session;
+    }
+
+    /**
+     * Carries out a command and appends the reply to 'out'.
+     * @return false once the conversation is over, after q or after selecting a board that cannot be solved
+     */
+    public boolean execute(String command, Appendable out) throws IOException {
+        switch (command) {
+            case "UP":
+            case "RIGHT":
+            case "DOWN":
+            case "LEFT":
+                if (!session.isPlaying()) {
+                    line(out, SELECT_PROMPT);
+                } else {
+                    session.move(Tiles.Direction.valueOf(command));
+                    renderer.append(session.getTiles(), out);
+                    promptOrFinish(out);
+                }
+                return true;
+            case "l":
+                ConfigurationStore store = session.getStore();
+                for (int i = 0; i < store.size(); i++) {
+                    Configuration c = store.get(i);
+                    out.append(Integer.toString(i)).append(' ').append(Integer.toString(c.getSize()))
+                            .append(" (").append(c.getData()).append(")\n");
+                }
+                return true;
+            case "f":
+            case "b":
+                if (!session.isPlaying()) {
+                    line(out, SELECT_PROMPT);
+                } else {
+                    if (command.equals("f")) {
+                        session.forward();
+                    } else {
+                        session.back();
+                    }
+                    renderer.append(session.getTiles(), out);
+                }
+                return true;
+            case "q":
+                session.quit();
+                return false;
+        }
+
+        if (command.startsWith("c")) {
+            return select(command, out);
+        }
+        return true;
+    }
+
+    // starts playing the configuration named by a 'c X' command
+    private boolean select(String command, Appendable out) throws IOException {
+        String[] arr = command.split(" ");
+        try {
+            session.select(Integer.parseInt(arr[1]));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            line(out, "There is no configuration " + (arr.length > 1 ? arr[1] : "") + ".");
+            line(out, session.isPlaying() ? MOVE_PROMPT : SELECT_PROMPT);
+            return true;
+        } catch (ConfigurationFormatException | InvalidConfigurationException e) {
+            line(out, e.getMessage());
+            line(out, session.isPlaying() ? MOVE_PROMPT : SELECT_PROMPT);
+            return true;
+        }
+        renderer.append(session.getTiles(), out);
+
+        if (!session.isSolvable()) {
+            line(out, "The game is not solvable. Quitting.");
+            session.quit();
+            return false;
+        }
+        promptOrFinish(out);
+        return true;
+    }
+
+    // asks for the next move, or ends the game if the board is solved
+    private void promptOrFinish(Appendable out) throws IOException {
+        if (!session.isSolved()) {
+            line(out, MOVE_PROMPT);
+        } else {
+            line(out, "You solved the puzzle!");
+            session.quit();
+            line(out, SELECT_PROMPT);
+        }
+    }
+
+    // appends a line of text
+    private static void line(Appendable out, String text) throws IOException {
+        out.append(text).append('\n');
+    }
+}
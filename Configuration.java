@@ -1,32 +1,39 @@
 public class Configuration implements Comparable<Configuration> {
     private String data;
     private int size;
+    private byte[] values;  // the tiles row by row when read from a binary store, null otherwise
+    private static final Metrics.Histogram PARSE_TIME = Metrics.histogram("configuration.parse.ns");
+    private static final Metrics.Histogram INITIALISE_TIME = Metrics.histogram("configuration.initialise.ns");
 
     /** Initialises the only field of this class using ’format’ */
     public Configuration(String format) throws ConfigurationFormatException {
-        if (format.equals(""))  {
-            throw new ConfigurationFormatException("Please specify a configuration.");
-        }
-
-        if (!format.contains(" ")) {
-            throw new ConfigurationFormatException("Invalid configuration format:" +
-                    "Inorrect number of fields in configuration (found 1).");
-        }
-
-        data = format.substring(format.indexOf(":") + 2);
-        String first = format.substring(0, format.indexOf(":"));
-        try {
-            size = Integer.parseInt(first);
-        } catch (NumberFormatException e) {
-            throw new ConfigurationFormatException("Invalid configuration format: " +
-                    "could not interpret the size field as a number ('" + first + "' given).");
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        size = ConfigurationParser.parseSize(format);
+        data = format.substring(ConfigurationParser.dataStart(format));
+        ConfigurationParser.validate(data, size);
+        if (Metrics.ENABLED) {
+            PARSE_TIME.recordSince(start);
         }
+    }
 
-        throwException();
+    // Constructor for configurations read from a binary store
+    Configuration(int size, byte[] values) {
+        this.size = size;
+        this.values = values;
     }
 
     // accessor for data
     public String getData() {
+        if (data == null) {
+            StringBuilder b = new StringBuilder(values.length * 3 + size * 2);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    b.append(i % size == 0 ? " : " : " ");
+                }
+                b.append(values[i]);
+            }
+            data = b.toString();
+        }
         return data;
     }
 
@@ -44,73 +51,49 @@ public class Configuration implements Comparable<Configuration> {
     /**  Updates the elements in the 2D array representing the values of ’tiles’
      *  as expressed by the contents of the field ’data’ .*/
     public void initialise(Tiles tiles) throws ConfigurationFormatException, InvalidConfigurationException {
-        throwException();
-        String[] arr = data.split(" ");
-        int c = 0;
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (arr[c].equals(":") || arr[c].equals("")) {
-                    c++;
-                }
-
-                tiles.setTile(j, i, Byte.valueOf(arr[c++]));
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                tiles.setTile(i % size, i / size, values[i]);
             }
+        } else {
+            // 'data' was validated by the constructor and never changes
+            ConfigurationParser.fill(data, size, tiles);
         }
-
         tiles.ensureValidity();
-    }
-
-    /** Throws ConfigurationFormatException if necessary. */
-    private void throwException() throws ConfigurationFormatException {
-
-        String[] arr = data.split(" ");
-
-        int rows = numberOfRows(arr);
-        if (rows != size) {
-            throw new ConfigurationFormatException("Invalid configuration format: " +
-                    "Invalid number of rows in configuration (found " + rows + ").");
+        if (Metrics.ENABLED) {
+            INITIALISE_TIME.recordSince(start);
         }
+    }
 
-        int columns = numberOfColumns(arr);
-        if (columns != size) {
-            throw new ConfigurationFormatException("Invalid configuration format: " +
-                    "Invalid number of columns in configuration (found " + columns + ").");
-        }
-
-
-        for (int i = 0; i < arr.length; i++) {
-            if (!arr[i].equals(":")) {
-                try {
-                    int a = Integer.parseInt(arr[i]);
-                } catch (NumberFormatException e) {
-                    throw new ConfigurationFormatException("Invalid configuration format: " +
-                           "Malformed configuration '" + data + "'.");
-                }
-            }
+    /** Stores the tiles row by row in 'values', which must hold size * size elements. */
+    public void getValues(byte[] values) throws InvalidConfigurationException {
+        if (this.values != null) {
+            System.arraycopy(this.values, 0, values, 0, this.values.length);
+        } else {
+            ConfigurationParser.fill(data, size, values);
         }
     }
 
-    /** Returns the number of rows of the board represented by 'arr' */
-    private int numberOfRows(String[] arr) {
-        int number = 1;
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i].equals(":")) {
-                number++;
+    /** Stores the tiles row by row in 'values', which must hold size * size elements. */
+    public void getValues(int[] values) throws InvalidConfigurationException {
+        if (this.values != null) {
+            for (int i = 0; i < this.values.length; i++) {
+                values[i] = this.values[i];
             }
+        } else {
+            ConfigurationParser.fill(data, size, values);
         }
-
-        return number;
     }
 
-    /** Returns the number of columns of the board represented by 'arr' */
-    private int numberOfColumns(String[] arr) {
-        int count = 0;
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i].equals(":")) {
-                break;
-            }
-            count++;
+    /**
+     * Creates a board for this configuration with an implementation of Tiles that can hold its tiles:
+     * ArrayTiles while every tile fits into a byte, ShortTiles for larger boards.
+     */
+    public Tiles createTiles() throws ConfigurationFormatException, InvalidConfigurationException {
+        if (size * size - 1 <= Byte.MAX_VALUE) {
+            return new ArrayTiles(this);
         }
-        return count;
+        return new ShortTiles(this);
     }
 }
@@ -0,0 +1,229 @@
+/** A class that reads configurations ("3: 1 2 3 : 4 5 6 : 7 8 0") in a single pass over a CharSequence,
+ * without splitting them into strings or boxing their numbers. Fields are separated by single spaces
+ * exactly as String.split(" ") separates them, so the same inputs are rejected with the same messages. */
+
+public class ConfigurationParser {
+
+    /**
+     * Reads the size field in front of the first ':' of a whole configuration line.
+     * @return the size of the board described by 'format'
+     * @throws ConfigurationFormatException if 'format' is empty or its size field is not a number
+     */
+    public static int parseSize(CharSequence format) throws ConfigurationFormatException {
+        if (format.length() == 0) {
+            throw new ConfigurationFormatException("Please specify a configuration.");
+        }
+
+        if (indexOf(format, ' ') < 0) {
+            throw new ConfigurationFormatException("Invalid configuration format:" +
+                    "Inorrect number of fields in configuration (found 1).");
+        }
+
+        int colon = indexOf(format, ':');
+        if (colon < 0) {
+            throw new ConfigurationFormatException("Invalid configuration format: " +
+                    "could not find the size field.");
+        }
+        if (colon == 0 || !isInteger(format, 0, colon)) {
+            throw new ConfigurationFormatException("Invalid configuration format: " +
+                    "could not interpret the size field as a number ('" + format.subSequence(0, colon) + "' given).");
+        }
+
+        int i = 0;
+        boolean negative = format.charAt(0) == '-';
+        if (negative || format.charAt(0) == '+') {
+            i++;
+        }
+        long size = 0;
+        for (; i < colon; i++) {
+            size = size * 10 + (format.charAt(i) - '0');
+        }
+
+        return (int) (negative ? -size : size);
+    }
+
+    /** Returns the position at which the board part of the whole configuration line 'format' starts. */
+    public static int dataStart(CharSequence format) {
+        return Math.min(indexOf(format, ':') + 2, format.length());
+    }
+
+    /**
+     * Checks that 'data' describes a board of the given size and throws ConfigurationFormatException if not.
+     * The number of rows is checked first, then the number of columns of the first row, then that every field
+     * is a number and finally that there is one number for every tile.
+     */
+    public static void validate(CharSequence data, int size) throws ConfigurationFormatException {
+        int length = data.length();
+        int rows = 1;
+        int columns = 0;
+        int values = 0;
+        int pendingEmpty = 0;       // empty fields only count when a non-empty field follows them
+        boolean firstRow = true;
+        boolean malformed = false;
+
+        if (length == 0) {
+            // splitting an empty string yields a single empty field
+            columns = 1;
+            malformed = true;
+        }
+
+        for (int start = 0; length > 0 && start <= length; ) {
+            int end = start;
+            while (end < length && data.charAt(end) != ' ') {
+                end++;
+            }
+
+            if (end == start) {
+                pendingEmpty++;
+            } else {
+                if (pendingEmpty > 0) {
+                    if (firstRow) {
+                        columns += pendingEmpty;
+                    }
+                    malformed = true;
+                    pendingEmpty = 0;
+                }
+
+                if (end - start == 1 && data.charAt(start) == ':') {
+                    rows++;
+                    firstRow = false;
+                } else {
+                    if (firstRow) {
+                        columns++;
+                    }
+                    if (!isInteger(data, start, end)) {
+                        malformed = true;
+                    }
+                    values++;
+                }
+            }
+            start = end + 1;
+        }
+
+        if (rows != size) {
+            throw new ConfigurationFormatException("Invalid configuration format: " +
+                    "Invalid number of rows in configuration (found " + rows + ").");
+        }
+        if (columns != size) {
+            throw new ConfigurationFormatException("Invalid configuration format: " +
+                    "Invalid number of columns in configuration (found " + columns + ").");
+        }
+        if (malformed) {
+            throw new ConfigurationFormatException("Invalid configuration format: " +
+                    "Malformed configuration '" + data + "'.");
+        }
+        if (values != size * size) {
+            throw new ConfigurationFormatException("Invalid configuration format: " +
+                    "Invalid number of tiles in configuration (found " + values + ").");
+        }
+    }
+
+    /**
+     * Sets the tiles of 'tiles' row by row to the numbers of 'data', which must have passed validate.
+     * Numbers too large for the implementation of 'tiles' are reported by its ensureValidity.
+     * @throws InvalidConfigurationException if a number does not fit into an int
+     */
+    public static void fill(CharSequence data, int size, Tiles tiles) throws InvalidConfigurationException {
+        fill(data, size, tiles, null, null);
+    }
+
+    /**
+     * Stores the numbers of 'data', which must have passed validate, row by row into 'values'.
+     * @throws InvalidConfigurationException if a number does not fit into a tile
+     */
+    public static void fill(CharSequence data, int size, byte[] values) throws InvalidConfigurationException {
+        fill(data, size, null, values, null);
+    }
+
+    /**
+     * Stores the numbers of 'data', which must have passed validate, row by row into 'values'.
+     * @throws InvalidConfigurationException if a number does not fit into an int
+     */
+    public static void fill(CharSequence data, int size, int[] values) throws InvalidConfigurationException {
+        fill(data, size, null, null, values);
+    }
+
+    // stores the numbers of 'data' in whichever of 'tiles', 'bytes' and 'ints' is not null
+    private static void fill(CharSequence data, int size, Tiles tiles, byte[] bytes, int[] ints)
+            throws InvalidConfigurationException {
+        long min = bytes != null ? Byte.MIN_VALUE : Integer.MIN_VALUE;
+        long max = bytes != null ? Byte.MAX_VALUE : Integer.MAX_VALUE;
+        int length = data.length();
+        int pos = 0;
+        int cells = size * size;
+        for (int i = 0; i < length && pos < cells; i++) {
+            char c = data.charAt(i);
+            if (c == ' ' || c == ':') {
+                continue;
+            }
+
+            boolean negative = c == '-';
+            if (c == '-' || c == '+') {
+                i++;
+            }
+            long value = 0;
+            while (i < length && data.charAt(i) != ' ') {
+                if (value <= Integer.MAX_VALUE) {
+                    value = value * 10 + (data.charAt(i) - '0');
+                }
+                i++;
+            }
+            if (negative) {
+                value = -value;
+            }
+
+            if (value < min || value > max) {
+                throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + value);
+            }
+            if (tiles != null) {
+                tiles.setTileUnchecked(pos, (int) value);
+            } else if (bytes != null) {
+                bytes[pos] = (byte) value;
+            } else {
+                ints[pos] = (int) value;
+            }
+            pos++;
+        }
+    }
+
+    // returns the position of the first occurrence of 'c' in 'data', -1 if there is none
+    private static int indexOf(CharSequence data, char c) {
+        for (int i = 0; i < data.length(); i++) {
+            if (data.charAt(i) == c) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /** Returns true if the characters between 'start' and 'end' would be accepted by Integer.parseInt. */
+    private static boolean isInteger(CharSequence data, int start, int end) {
+        int i = start;
+        long limit = Integer.MAX_VALUE;
+        char first = data.charAt(i);
+        if (first == '-' || first == '+') {
+            if (first == '-') {
+                limit++;
+            }
+            i++;
+            if (i == end) {
+                return false;
+            }
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            char c = data.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            value = value * 10 + (c - '0');
+            if (value > limit) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
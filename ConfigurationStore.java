@@ -1,55 +1,187 @@
 import java.io.*;
-import java.net.*;
 import java.util.*;
 
+/** A class for the configurations of a store. Once loaded they are sorted by size a single time, with a stable
+ * counting sort, and kept in an unmodifiable list, so listing them and picking one by its number does not sort or
+ * copy anything. The configurations of each size form a contiguous range of that list.
+ *
+ * With -Dnpuzzle.store.mapped=true a text store on disk is opened as a MappedConfigurationStore instead: only an
+ * index of the lines is kept on the heap and every configuration is parsed when it is asked for, so the same
+ * programs can open stores larger than the heap. */
 public class ConfigurationStore {
-    private ArrayList<Configuration> configs = new ArrayList<>();
+    private ArrayList<Configuration> configs = new ArrayList<>();   // the configurations in the order they were read
+    private List<Configuration> sorted;     // all configurations sorted by size, built once after loading
+    private int[] sizes;                    // the different sizes in increasing order
+    private int[] sizeStarts;               // the index in 'sorted' of the first configuration of each size, and the end
+    private LoadReport report;      // the result of reading a text store, null for binary stores and lists
+    private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("store.load.ns");
+    private static final Metrics.Counter LOADED = Metrics.counter("store.configurations");
+    private static final Metrics.Counter REJECTED = Metrics.counter("store.rejected");
+    private static final boolean MAPPED = Boolean.getBoolean("npuzzle.store.mapped");
 
     // Constructor for ConfigurationStore
     public ConfigurationStore(String source) throws IOException, InvalidConfigurationException, ConfigurationFormatException {
         if (source.startsWith("http://") || source.startsWith("https://")) {
             loadFromURL(source);
+        } else if (MAPPED && !BinaryConfigurationFormat.isBinary(source)) {
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            useMapped(new MappedConfigurationStore(source), start);
+            return;
         } else {
             loadFromDisk(source);
         }
+        index();
+    }
+
+    // Constructor for ConfigurationStore
+    public ConfigurationStore(MappedConfigurationStore mapped) {
+        useMapped(mapped, Metrics.ENABLED ? System.nanoTime() : 0);
+    }
+
+    // Constructor for ConfigurationStore
+    public ConfigurationStore(List<Configuration> configurations) {
+        configs.addAll(configurations);
+        index();
     }
 
     // Constructor for ConfigurationStore
     public ConfigurationStore(Reader source) throws IOException, InvalidConfigurationException, ConfigurationFormatException {
         load(source);
+        index();
     }
 
-    /** Reads each line from 'r' and stores in 'configs' */
+    /** Reads each line from 'r' on several threads and stores the configurations in 'configs', in line order. */
     private void load(Reader r) throws IOException {
-        BufferedReader b = new BufferedReader(r);
-        String line;
-        while ((line = b.readLine()) != null) {
-            try {
-                configs.add(new Configuration(line));
-            } catch (Exception e) {
-                System.out.println(e.getMessage());
-            }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        accept(new ParallelConfigurationLoader().load(r), start);
+    }
+
+    /** Stores the configurations of a load report; the lines that could not be read are left to the callers of
+     * getLoadReport. */
+    private void accept(LoadReport loaded, long start) {
+        report = loaded;
+        configs.addAll(report.getConfigurations());
+        if (Metrics.ENABLED) {
+            LOADED.add(report.getConfigurations().size());
+            REJECTED.add(report.getErrors().size());
+            LOAD_TIME.recordSince(start);
+        }
+    }
+
+    /** Takes the lazy sorted list and the size index of a mapped store instead of building them. */
+    private void useMapped(MappedConfigurationStore mapped, long start) {
+        report = mapped.getLoadReport();
+        sorted = mapped.getConfigurationsSizeSorted();
+        sizes = mapped.getSizes();
+        sizeStarts = new int[sizes.length + 1];
+        for (int d = 0; d < sizes.length; d++) {
+            sizeStarts[d] = mapped.indexOfSize(sizes[d]);
+        }
+        sizeStarts[sizes.length] = mapped.size();
+        configs = null;
+        if (Metrics.ENABLED) {
+            LOADED.add(mapped.size());
+            REJECTED.add(report.getErrors().size());
+            LOAD_TIME.recordSince(start);
         }
     }
 
-    /** Reads configurations from a file over the web given a URL. */
+    /** Reads configurations from a file over the web given a URL, reusing the cached copy if it has not changed. */
     private void loadFromURL(String url) throws IOException, InvalidConfigurationException, ConfigurationFormatException {
-        URL destination = new URL(url);
-        URLConnection conn = destination.openConnection();
-        Reader r = new InputStreamReader(conn.getInputStream());
-        load(r);
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        accept(new RemoteConfigurationLoader().load(url).getReport(), start);
     }
 
-    /** Reads configurations from a file. */
+    /** Reads configurations from a file in either the text or the binary format. */
     private void loadFromDisk(String filename) throws IOException, InvalidConfigurationException, ConfigurationFormatException {
+        if (BinaryConfigurationFormat.isBinary(filename)) {
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            List<Configuration> read = BinaryConfigurationFormat.read(filename);
+            configs.addAll(read);
+            if (Metrics.ENABLED) {
+                LOADED.add(read.size());
+                LOAD_TIME.recordSince(start);
+            }
+            return;
+        }
         Reader r = new FileReader(filename);
         load(r);
     }
 
-    /** Returns a list of all configurations sorted by size. */
-     public ArrayList<Configuration> getConfigurationsSizeSorted() {
-        Collections.sort(configs);
-        ArrayList<Configuration> copy = new ArrayList<>(configs);
-        return copy;
+    // accessor for the result of reading a text store, null if the store was not read from text
+    public LoadReport getLoadReport() {
+        return report;
+    }
+
+    /** Sorts the configurations read by size with a counting sort, which keeps the order of each size. */
+    private void index() {
+        int maxSize = 0;
+        for (Configuration c : configs) {
+            maxSize = Math.max(maxSize, c.getSize());
+        }
+        int[] counts = new int[maxSize + 2];
+        for (Configuration c : configs) {
+            counts[c.getSize() + 1]++;
+        }
+
+        int distinct = 0;
+        for (int size = 0; size <= maxSize; size++) {
+            if (counts[size + 1] > 0) {
+                distinct++;
+            }
+            counts[size + 1] += counts[size];   // counts[size] is now the index of the first board of 'size'
+        }
+        sizes = new int[distinct];
+        sizeStarts = new int[distinct + 1];
+        int d = 0;
+        for (int size = 0; size <= maxSize; size++) {
+            if (counts[size + 1] > counts[size]) {
+                sizes[d] = size;
+                sizeStarts[d++] = counts[size];
+            }
+        }
+        sizeStarts[distinct] = configs.size();
+
+        Configuration[] array = new Configuration[configs.size()];
+        for (Configuration c : configs) {
+            array[counts[c.getSize()]++] = c;
+        }
+        sorted = Collections.unmodifiableList(Arrays.asList(array));
+        configs = null;
+    }
+
+    // accessor for the number of configurations
+    public int size() {
+        return sorted.size();
+    }
+
+    /**
+     * Returns the configuration with the given number.
+     * @param index the position of the configuration in the list of all configurations sorted by size
+     */
+    public Configuration get(int index) {
+        return sorted.get(index);
+    }
+
+    /** Returns the different sizes of the configurations in increasing order. */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /** Returns the index in the sorted list of the first configuration of the given size, or -1 if there is none. */
+    public int indexOfSize(int size) {
+        int d = Arrays.binarySearch(sizes, size);
+        return d < 0 ? -1 : sizeStarts[d];
+    }
+
+    /** Returns an unmodifiable view of the configurations of the given size, which is empty if there are none. */
+    public List<Configuration> getConfigurationsOfSize(int size) {
+        int d = Arrays.binarySearch(sizes, size);
+        return d < 0 ? Collections.emptyList() : sorted.subList(sizeStarts[d], sizeStarts[d + 1]);
+    }
+
+    /** Returns an unmodifiable list of all configurations sorted by size, without copying them. */
+    public List<Configuration> getConfigurationsSizeSorted() {
+        return sorted;
     }
 }
@@ -0,0 +1,129 @@
+/** A class for one game played on the configurations of a store without any terminal input or output, so that
+ * games can be driven by programs as well as by NPuzzle. A session holds the board being played and its history;
+ * the store is only read and can be shared by any number of sessions. A session must not be used by several
+ * threads at once. */
+
+import java.util.List;
+
+public class GameSession {
+    private final ConfigurationStore store;
+    private MoveHistory history;        // the board being played and its moves, null before a selection
+    private int configurationIndex = -1;
+
+    // Constructor for GameSession
+    public GameSession(ConfigurationStore store) {
+        this.store = store;
+    }
+
+    // accessor for the store the configurations are selected from
+    public ConfigurationStore getStore() {
+        return store;
+    }
+
+    /**
+     * Starts a game with the configuration with the given number, discarding the game played so far.
+     * @param index the position of the configuration in the list of all configurations sorted by size
+     * @throws IndexOutOfBoundsException if there is no configuration with that number
+     */
+    public void select(int index) throws ConfigurationFormatException, InvalidConfigurationException {
+        history = new MoveHistory(store.get(index).createTiles());
+        configurationIndex = index;
+    }
+
+    /** Ends the game being played, if any. */
+    public void quit() {
+        history = null;
+        configurationIndex = -1;
+    }
+
+    // accessor for whether a game is being played
+    public boolean isPlaying() {
+        return history != null;
+    }
+
+    // accessor for the number of the configuration being played, -1 if there is none
+    public int getConfigurationIndex() {
+        return configurationIndex;
+    }
+
+    // accessor for the board being played, null if there is none
+    public Tiles getTiles() {
+        return history == null ? null : history.getTiles();
+    }
+
+    // accessor for the history of the game being played, null if there is none
+    public MoveHistory getHistory() {
+        return history;
+    }
+
+    // accessor for the number of moves made on the board
+    public int getMoveCount() {
+        return game().getMoveCount();
+    }
+
+    /** Checks if the board being played is solved. */
+    public boolean isSolved() {
+        return game().isSolved();
+    }
+
+    /** Checks if the board being played can be solved. */
+    public boolean isSolvable() {
+        return game().isSolvable();
+    }
+
+    /**
+     * Makes a move and records it, discarding the moves that could have been made forward.
+     * @return true if the move was possible, false otherwise
+     */
+    public boolean move(Tiles.Direction direction) {
+        game();
+        return history.move(direction);
+    }
+
+    /**
+     * Makes the moves in order; moves that are not possible are skipped.
+     * @return the number of moves that were made
+     */
+    public int move(List<Tiles.Direction> directions) {
+        game();
+        int made = 0;
+        for (Tiles.Direction direction : directions) {
+            if (history.move(direction)) {
+                made++;
+            }
+        }
+        return made;
+    }
+
+    /**
+     * Undoes the last move.
+     * @return true if there was a move to undo, false if the board is at move 0
+     */
+    public boolean back() {
+        game();
+        return history.back();
+    }
+
+    /**
+     * Repeats the move that was undone last.
+     * @return true if there was a move to repeat, false otherwise
+     */
+    public boolean forward() {
+        game();
+        return history.forward();
+    }
+
+    /** Goes back or forward to the board after the given number of recorded moves. */
+    public void seek(int position) {
+        game();
+        history.seek(position);
+    }
+
+    // returns the board being played, failing if there is none
+    private Tiles game() {
+        if (history == null) {
+            throw new IllegalStateException("No configuration selected");
+        }
+        return history.getTiles();
+    }
+}
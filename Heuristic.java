@@ -0,0 +1,23 @@
+/** An interface for estimates of the number of moves needed to solve a board, used to guide the solvers.
+ * An estimate never exceeds the real number of moves. Implementations may remember the board they were last
+ * reset with, so a single instance must only be used by one search at a time. */
+
+public interface Heuristic {
+
+    /**
+     * Computes the estimate for a board from scratch.
+     * @param tiles the board to estimate
+     * @return the estimated number of moves needed to solve 'tiles'
+     */
+    int reset(Tiles tiles);
+
+    /**
+     * Updates the estimate after a single move. Undoing a move is reported as a move in the opposite direction.
+     * @param tiles the board after the move
+     * @param value the value of the tile that was moved
+     * @param from the position (row * size + col) the tile was moved from
+     * @param to the position (row * size + col) the tile was moved to
+     * @return the estimated number of moves needed to solve 'tiles'
+     */
+    int update(Tiles tiles, int value, int from, int to);
+}
@@ -0,0 +1,128 @@
+/** A heuristic that adds two moves for every linear conflict to the Manhattan distance of the board. Two tiles
+ * are in linear conflict when both are in their goal row (or column) but in the reverse order. The Manhattan sum
+ * and the conflicts of each row and column are kept between calls, so a move only recomputes the lines it touches. */
+
+public class LinearConflictHeuristic implements Heuristic {
+    private int size;
+    private int manhattan;          // the sum of the Manhattan distances of all tiles
+    private int conflicts;          // the sum of the linear conflicts of all rows and columns
+    private int[] rowConflicts;
+    private int[] colConflicts;
+    private int[] line;             // scratch space for the goal positions of the tiles in a single line
+    private int[] tails;            // scratch space for the longest increasing run of 'line'
+
+    // Constructor for LinearConflictHeuristic
+    public LinearConflictHeuristic(int size) {
+        this.size = size;
+        rowConflicts = new int[size];
+        colConflicts = new int[size];
+        line = new int[size];
+        tails = new int[size];
+    }
+
+    @Override
+    /** Computes the Manhattan distance and the linear conflicts of 'tiles' from scratch. */
+    public int reset(Tiles tiles) {
+        manhattan = 0;
+        conflicts = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int value = tiles.getTileUnchecked(i * size + j);
+                if (value != Tiles.EMPTY) {
+                    manhattan += Math.abs(j - (value - 1) % size) + Math.abs(i - (value - 1) / size);
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            rowConflicts[i] = 0;
+            colConflicts[i] = 0;
+            updateRowConflicts(tiles, i);
+            updateColConflicts(tiles, i);
+        }
+
+        return manhattan + 2 * conflicts;
+    }
+
+    @Override
+    /** Updates the distance of the moved tile and the conflicts of the two lines it left and entered. */
+    public int update(Tiles tiles, int value, int from, int to) {
+        int fromCol = from % size;
+        int fromRow = from / size;
+        int toCol = to % size;
+        int toRow = to / size;
+        int goalCol = (value - 1) % size;
+        int goalRow = (value - 1) / size;
+        manhattan += Math.abs(toCol - goalCol) + Math.abs(toRow - goalRow)
+                - Math.abs(fromCol - goalCol) - Math.abs(fromRow - goalRow);
+
+        if (fromRow != toRow) {
+            // the tile changed rows, so only these two rows can gain or lose conflicts
+            updateRowConflicts(tiles, fromRow);
+            updateRowConflicts(tiles, toRow);
+        } else {
+            updateColConflicts(tiles, fromCol);
+            updateColConflicts(tiles, toCol);
+        }
+
+        return manhattan + 2 * conflicts;
+    }
+
+    // recomputes the linear conflicts of a single row
+    private void updateRowConflicts(Tiles tiles, int row) {
+        int count = 0;
+        for (int col = 0; col < size; col++) {
+            int value = tiles.getTileUnchecked(row * size + col);
+            if (value != Tiles.EMPTY && (value - 1) / size == row) {
+                line[count++] = (value - 1) % size;
+            }
+        }
+
+        int updated = lineConflicts(count);
+        conflicts += updated - rowConflicts[row];
+        rowConflicts[row] = updated;
+    }
+
+    // recomputes the linear conflicts of a single column
+    private void updateColConflicts(Tiles tiles, int col) {
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            int value = tiles.getTileUnchecked(row * size + col);
+            if (value != Tiles.EMPTY && (value - 1) % size == col) {
+                line[count++] = (value - 1) / size;
+            }
+        }
+
+        int updated = lineConflicts(count);
+        conflicts += updated - colConflicts[col];
+        colConflicts[col] = updated;
+    }
+
+    /**
+     * Counts how many tiles have to leave their line so that the remaining ones are in goal order, which is the
+     * number of tiles minus the length of the longest increasing run of goal positions, found by patience sorting.
+     * Removing fewer tiles than this is impossible, which keeps the heuristic admissible.
+     * @param count the number of goal positions stored in 'line'
+     * @return the number of tiles that have to be removed
+     */
+    private int lineConflicts(int count) {
+        int longest = 0;    // tails[k] is the smallest last position of an increasing run of length k + 1
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = longest;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (tails[mid] < line[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            tails[low] = line[i];
+            if (low == longest) {
+                longest++;
+            }
+        }
+        return count - longest;
+    }
+}
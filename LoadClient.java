@@ -0,0 +1,156 @@
+/** A class that puts load on a PuzzleServer by playing many games at once. Every simulated player opens a
+ * connection of its own, selects a random configuration and sends random moves, going back and forward now and
+ * then, waiting for each reply before sending the next command. The time from sending a command to reading the
+ * end of its reply is recorded in a histogram in nanoseconds. Players run on virtual threads where the runtime
+ * offers them, like the connections of the server. */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadClient {
+    private static final String[] COMMANDS = { "UP", "RIGHT", "DOWN", "LEFT", "UP", "RIGHT", "DOWN", "LEFT", "b", "f" };
+
+    private final String host;
+    private final int port;
+    private final int configurations;   // players select one of the configurations numbered 0 to configurations - 1
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Metrics.Histogram latency = new Metrics.Histogram();
+
+    // Constructor for LoadClient
+    public LoadClient(String host, int port, int configurations) {
+        this.host = host;
+        this.port = port;
+        this.configurations = Math.max(1, configurations);
+    }
+
+    // accessor for the number of commands answered
+    public long getCommandCount() {
+        return commands.sum();
+    }
+
+    // accessor for the number of players whose connection failed
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    // accessor for the time from sending each command to reading its reply, in nanoseconds
+    public Metrics.Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Runs 'players' players at once, each sending 'moves' commands after selecting a configuration, and waits
+     * for all of them.
+     * @throws InterruptedIOException if the run is interrupted
+     */
+    public void run(int players, int moves, long seed) throws InterruptedIOException {
+        ExecutorService pool = PuzzleServer.newThreadPerTaskExecutor();
+        try {
+            SplittableRandom random = new SplittableRandom(seed);
+            List<Future<?>> results = new ArrayList<>(players);
+            for (int p = 0; p < players; p++) {
+                SplittableRandom own = random.split();
+                results.add(pool.submit(() -> play(moves, own)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Load run was interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // plays one game on a connection of its own
+    private void play(int moves, SplittableRandom random) {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            readReply(in);
+            send("c " + random.nextInt(configurations), in, out);
+            for (int m = 0; m < moves; m++) {
+                send(COMMANDS[random.nextInt(COMMANDS.length)], in, out);
+            }
+            out.write("q\n");
+            out.flush();
+        } catch (IOException e) {
+            failures.increment();
+        }
+    }
+
+    // sends a command and waits for the end of its reply
+    private void send(String command, BufferedReader in, Writer out) throws IOException {
+        long start = System.nanoTime();
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        readReply(in);
+        latency.recordSince(start);
+        commands.increment();
+    }
+
+    // reads the lines of a reply up to its end
+    private static void readReply(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(PuzzleServer.END_OF_REPLY)) {
+                return;
+            }
+        }
+        throw new IOException("Connection closed by the server");
+    }
+
+    public static void main(String args[]) {
+        if (args.length < 4 || args.length > 6) {
+            System.out.println("Usage: java LoadClient <host> <port> <players> <moves per player> " +
+                    "[configurations] [seed]");
+            System.out.println("Plays random games on a PuzzleServer and reports the latency of the commands.");
+            return;
+        }
+        try {
+            int players = Integer.parseInt(args[2]);
+            int moves = Integer.parseInt(args[3]);
+            int configurations = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+            long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+            LoadClient client = new LoadClient(args[0], Integer.parseInt(args[1]), configurations);
+
+            long startTime = System.currentTimeMillis();
+            client.run(players, moves, seed);
+            long ms = Math.max(1, System.currentTimeMillis() - startTime);
+
+            Metrics.Histogram latency = client.getLatency();
+            System.out.println(players + " players, " + client.getFailureCount() + " failed; " +
+                    client.getCommandCount() + " commands in " + ms + " ms (" +
+                    client.getCommandCount() * 1000 / ms + " commands/s); latency ns p50=" +
+                    latency.getPercentile(50) + " p99=" + latency.getPercentile(99) + " max=" + latency.getMax());
+        } catch (NumberFormatException e) {
+            System.out.println("Port, players, moves, configurations and seed must be numbers");
+        } catch (IOException ioe) {
+            System.out.println(ioe.getMessage());
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
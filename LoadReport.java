@@ -0,0 +1,79 @@
+/** A class for the result of loading a store: the configurations that were read, in the order of their lines,
+ * and an error for every line that could not be used. */
+
+import java.util.Collections;
+import java.util.List;
+
+public class LoadReport {
+    private final List<Configuration> configurations;
+    private final List<LineError> errors;
+    private final long lineCount;
+    private final long elapsedTime;
+
+    /** The problem found on a line of a store. */
+    public static class LineError {
+        private final long line;
+        private final String type;
+        private final String message;
+
+        // Constructor for LineError
+        public LineError(long line, Exception exception) {
+            this.line = line;
+            this.type = exception.getClass().getSimpleName();
+            this.message = exception.getMessage();
+        }
+
+        // accessor for the number of the line, counting from 1
+        public long getLine() {
+            return line;
+        }
+
+        // accessor for the simple name of the class of the exception raised by the line
+        public String getType() {
+            return type;
+        }
+
+        // accessor for the message of the exception raised by the line
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + type + ": " + message;
+        }
+    }
+
+    // Constructor for LoadReport
+    public LoadReport(List<Configuration> configurations, List<LineError> errors, long lineCount, long elapsedTime) {
+        this.configurations = Collections.unmodifiableList(configurations);
+        this.errors = Collections.unmodifiableList(errors);
+        this.lineCount = lineCount;
+        this.elapsedTime = elapsedTime;
+    }
+
+    // accessor for the configurations read, in the order of their lines
+    public List<Configuration> getConfigurations() {
+        return configurations;
+    }
+
+    // accessor for the errors, in the order of their lines
+    public List<LineError> getErrors() {
+        return errors;
+    }
+
+    // accessor for the number of lines read
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    // accessor for the number of milliseconds loading took
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /** Checks if every line was read without errors. */
+    public boolean isClean() {
+        return errors.isEmpty();
+    }
+}
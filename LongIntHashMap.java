@@ -0,0 +1,136 @@
+/** A class for a hash map from long keys to non-negative int values that stores both in plain arrays, using open
+ * addressing with linear probing. Nothing is boxed and no object is created per entry, which makes it suitable
+ * for the millions of packed boards visited by a search. The key 0 marks free slots and cannot be stored. */
+
+import java.util.Arrays;
+
+public class LongIntHashMap {
+    private static final long FREE = 0;
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int shift;      // 64 minus the number of bits of the capacity
+
+    // Constructor for LongIntHashMap
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    // accessor for the number of entries
+    public int size() {
+        return size;
+    }
+
+    // accessor for the number of bytes taken by the arrays of the map
+    public long memoryUsage() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    /** Returns the value stored for 'key', or -1 if there is none. */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long k = keys[slot];
+            if (k == key) {
+                return values[slot];
+            }
+            if (k == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Stores 'value' for 'key' unless the key is already present.
+     * @return true if the entry was added, false if the key was present
+     */
+    public boolean putIfAbsent(long key, int value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("The key 0 cannot be stored");
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values cannot be stored");
+        }
+
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every entry whose value is smaller than 'threshold'.
+     * @return the number of entries removed
+     */
+    public int removeValuesBelow(int threshold) {
+        int before = size;
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE && oldValues[i] >= threshold) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        return before - size;
+    }
+
+    // returns the first slot probed for 'key'
+    private int slot(long key) {
+        return (int) ((key * PHI) >>> shift);
+    }
+
+    // replaces the arrays with empty ones of the given capacity
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    // moves all entries into arrays of the given capacity
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // stores an entry whose key is known to be absent, without growing
+    private void insert(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /** Removes all entries. */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+}
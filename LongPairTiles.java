@@ -0,0 +1,157 @@
+/** A class for a compact representation of boards of size up to 5 that packs the value of every tile into a
+ * 5 bit field of a pair of longs. The fields form one 128 bit number whose low half is held in 'low' and
+ * whose high half is held in 'high', so the field of position 12 is split between the two. */
+
+public class LongPairTiles extends Tiles {
+    public static final int MAX_SIZE = 5;
+    private static final int BITS = 5;
+    private static final long MASK = 0x1F;
+
+    private long low;           // bits 0 to 63 of the packed board
+    private long high;          // bits 64 to 127 of the packed board
+    private int emptyPos;
+    private int invalidTile;    // a tile value that does not fit into a field, reported by ensureValidity
+
+    // Constructor for LongPairTiles
+    public LongPairTiles(Configuration configuration) throws ConfigurationFormatException, InvalidConfigurationException {
+        super(configuration);
+        if (getSize() > MAX_SIZE) {
+            throw new InvalidConfigurationException("Invalid configuration: boards larger than " + MAX_SIZE +
+                    " cannot be packed into two longs (found " + getSize() + ").");
+        }
+        getConfiguration().initialise(this);
+        for (int pos = 0; pos < getSize() * getSize(); pos++) {
+            if (tileAt(low, high, pos) == EMPTY) {
+                emptyPos = pos;
+            }
+        }
+    }
+
+    // Copy constructor for LongPairTiles
+    public LongPairTiles(LongPairTiles other) {
+        super(other);
+        this.low = other.low;
+        this.high = other.high;
+        this.emptyPos = other.emptyPos;
+        this.invalidTile = other.invalidTile;
+    }
+
+    @Override
+    /** Overrides the clone method of the class Object to return a copy of the given LongPairTiles object. */
+    protected LongPairTiles clone() {
+        return (LongPairTiles) super.clone();
+    }
+
+    // accessor for the low half of the packed board
+    public long getLow() {
+        return low;
+    }
+
+    // accessor for the high half of the packed board
+    public long getHigh() {
+        return high;
+    }
+
+    /** Returns the value of the tile at position 'pos' (row * size + col) of the packed board 'low', 'high'. */
+    public static int tileAt(long low, long high, int pos) {
+        int shift = pos * BITS;
+        if (shift >= Long.SIZE) {
+            return (int) ((high >>> (shift - Long.SIZE)) & MASK);
+        }
+        if (shift + BITS <= Long.SIZE) {
+            return (int) ((low >>> shift) & MASK);
+        }
+        return (int) (((low >>> shift) | (high << (Long.SIZE - shift))) & MASK);
+    }
+
+    /** Returns the low half of the packed board 'low', 'high' with the tile at position 'pos' replaced by 'value'. */
+    public static long lowWithTile(long low, int pos, int value) {
+        int shift = pos * BITS;
+        if (shift >= Long.SIZE) {
+            return low;
+        }
+        return (low & ~(MASK << shift)) | ((value & MASK) << shift);
+    }
+
+    /** Returns the high half of the packed board 'low', 'high' with the tile at position 'pos' replaced by 'value'. */
+    public static long highWithTile(long high, int pos, int value) {
+        int shift = pos * BITS - Long.SIZE;
+        if (shift >= 0) {
+            return (high & ~(MASK << shift)) | ((value & MASK) << shift);
+        }
+        if (shift + BITS <= 0) {
+            return high;
+        }
+        // the field starts in the low half, only its top bits live here
+        return (high & ~(MASK >>> -shift)) | ((value & MASK) >>> -shift);
+    }
+
+    @Override
+    /** Makes a move by sliding a tile into the empty space in the specified direction. */
+    protected void makeMove(Direction direction) {
+        int tilePos = tilePosition(direction);
+
+        int value = tileAt(low, high, tilePos);
+        trackMove(value, tilePos, emptyPos);
+        long l = lowWithTile(low, tilePos, EMPTY);
+        long h = highWithTile(high, tilePos, EMPTY);
+        low = lowWithTile(l, emptyPos, value);
+        high = highWithTile(h, emptyPos, value);
+        emptyPos = tilePos;
+    }
+
+    @Override
+    // accessor for a tile without bounds checks
+    public int getTileUnchecked(int pos) {
+        return tileAt(low, high, pos);
+    }
+
+    @Override
+    // mutator for a tile without bounds checks
+    public void setTileUnchecked(int pos, int value) {
+        if (value < 0 || value > MASK) {
+            invalidTile = value;
+        }
+
+        trackSet(pos, tileAt(low, high, pos), value);
+        low = lowWithTile(low, pos, value);
+        high = highWithTile(high, pos, value);
+    }
+
+    @Override
+    // accessor for the position of the empty space
+    public int getEmptyPosition() {
+        return emptyPos;
+    }
+
+    @Override
+    /** Reports tile values that were too large to be packed before performing the usual checks. */
+    public void ensureValidity() throws InvalidConfigurationException {
+        if (invalidTile != 0) {
+            throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + invalidTile);
+        }
+        super.ensureValidity();
+    }
+
+    @Override
+    /**
+     * Checks if one of the tiles can be moved to the specified direction.
+     * @return true if a move to the specified direction can be performed, false otherwise
+     */
+    protected boolean canMove(Direction direction) {
+        int emptyRow = emptyPos / getSize();
+        int emptyCol = emptyPos % getSize();
+        switch (direction) {
+            case UP:
+                return isValidPosition(emptyCol, emptyRow + 1);
+            case RIGHT:
+                return isValidPosition(emptyCol - 1, emptyRow);
+            case DOWN:
+                return isValidPosition(emptyCol, emptyRow - 1);
+            case LEFT:
+                return isValidPosition(emptyCol + 1, emptyRow);
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,125 @@
+/** A class for a compact representation of boards of size up to 4 that packs the value of every tile into a
+ * 4 bit field of a single long. Copying a board therefore never allocates, and the packed value can be
+ * stored directly in primitive collections. */
+
+public class LongTiles extends Tiles {
+    public static final int MAX_SIZE = 4;
+    private static final int BITS = 4;
+    private static final long MASK = 0xF;
+
+    private long tiles;         // represents the board, the tile at position p occupies bits 4p to 4p + 3
+    private int emptyPos;
+    private int invalidTile;    // a tile value that does not fit into a field, reported by ensureValidity
+
+    // Constructor for LongTiles
+    public LongTiles(Configuration configuration) throws ConfigurationFormatException, InvalidConfigurationException {
+        super(configuration);
+        if (getSize() > MAX_SIZE) {
+            throw new InvalidConfigurationException("Invalid configuration: boards larger than " + MAX_SIZE +
+                    " cannot be packed into a long (found " + getSize() + ").");
+        }
+        getConfiguration().initialise(this);
+        for (int pos = 0; pos < getSize() * getSize(); pos++) {
+            if (tileAt(tiles, pos) == EMPTY) {
+                emptyPos = pos;
+            }
+        }
+    }
+
+    // Copy constructor for LongTiles
+    public LongTiles(LongTiles other) {
+        super(other);
+        this.tiles = other.tiles;
+        this.emptyPos = other.emptyPos;
+        this.invalidTile = other.invalidTile;
+    }
+
+    @Override
+    /** Overrides the clone method of the class Object to return a copy of the given LongTiles object. */
+    protected LongTiles clone() {
+        return (LongTiles) super.clone();
+    }
+
+    // accessor for the packed board
+    public long getPacked() {
+        return tiles;
+    }
+
+    /** Returns the value of the tile at position 'pos' (row * size + col) of the packed board 'board'. */
+    public static int tileAt(long board, int pos) {
+        return (int) ((board >>> (pos * BITS)) & MASK);
+    }
+
+    /** Returns a copy of the packed board 'board' with the tile at position 'pos' replaced by 'value'. */
+    public static long withTile(long board, int pos, int value) {
+        int shift = pos * BITS;
+        return (board & ~(MASK << shift)) | ((value & MASK) << shift);
+    }
+
+    @Override
+    /** Makes a move by sliding a tile into the empty space in the specified direction. */
+    protected void makeMove(Direction direction) {
+        int tilePos = tilePosition(direction);
+
+        // the empty field holds 0, so the tile only has to be cleared from its old field and or-ed into the new one
+        int tileShift = tilePos * BITS;
+        long value = (tiles >>> tileShift) & MASK;
+        trackMove((int) value, tilePos, emptyPos);
+        tiles = (tiles & ~(MASK << tileShift)) | (value << (emptyPos * BITS));
+        emptyPos = tilePos;
+    }
+
+    @Override
+    // accessor for a tile without bounds checks
+    public int getTileUnchecked(int pos) {
+        return tileAt(tiles, pos);
+    }
+
+    @Override
+    // mutator for a tile without bounds checks
+    public void setTileUnchecked(int pos, int value) {
+        if (value < 0 || value > MASK) {
+            invalidTile = value;
+        }
+
+        trackSet(pos, tileAt(tiles, pos), value);
+        tiles = withTile(tiles, pos, value);
+    }
+
+    @Override
+    // accessor for the position of the empty space
+    public int getEmptyPosition() {
+        return emptyPos;
+    }
+
+    @Override
+    /** Reports tile values that were too large to be packed before performing the usual checks. */
+    public void ensureValidity() throws InvalidConfigurationException {
+        if (invalidTile != 0) {
+            throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + invalidTile);
+        }
+        super.ensureValidity();
+    }
+
+    @Override
+    /**
+     * Checks if one of the tiles can be moved to the specified direction.
+     * @return true if a move to the specified direction can be performed, false otherwise
+     */
+    protected boolean canMove(Direction direction) {
+        int emptyRow = emptyPos / getSize();
+        int emptyCol = emptyPos % getSize();
+        switch (direction) {
+            case UP:
+                return isValidPosition(emptyCol, emptyRow + 1);
+            case RIGHT:
+                return isValidPosition(emptyCol - 1, emptyRow);
+            case DOWN:
+                return isValidPosition(emptyCol, emptyRow - 1);
+            case LEFT:
+                return isValidPosition(emptyCol + 1, emptyRow);
+        }
+
+        return false;
+    }
+}
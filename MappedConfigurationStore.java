@@ -0,0 +1,272 @@
+/** A class for a read-only store of configurations that is backed by a memory-mapped file instead of a list.
+ * Loading only validates each line in place and records where it is; a Configuration is created when it is
+ * asked for. The index takes eight bytes per configuration, so stores of several gigabytes can be opened with a
+ * small heap. Configurations are numbered by size exactly like ConfigurationStore.getConfigurationsSizeSorted, and
+ * a ConfigurationStore opened with -Dnpuzzle.store.mapped=true is backed by one of these. */
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class MappedConfigurationStore implements Iterable<Configuration> {
+    private static final long REGION_SIZE = 1L << 30;   // the largest part of the file mapped by a single buffer
+    private static final int LENGTH_BITS = 24;          // an index entry holds the offset and the length of a line
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+
+    private MappedByteBuffer[] regions;
+    private long[] regionStarts;    // the offset in the file of the first byte of each region
+    private long[] entries;         // the offset and length of every valid line, sorted by size
+    private int[] sizes;            // the different sizes in increasing order
+    private int[] sizeStarts;       // the index in 'entries' of the first configuration of each size, and the end
+    private LoadReport report;
+
+    // Constructor for MappedConfigurationStore
+    public MappedConfigurationStore(String filename) throws IOException {
+        long startTime = System.currentTimeMillis();
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            map(channel);
+        }
+        index(startTime);
+    }
+
+    /** Maps the file into regions that each end with a complete line. */
+    private void map(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        MappedByteBuffer[] buffers = new MappedByteBuffer[(int) (fileSize / REGION_SIZE) + 2];
+        long[] starts = new long[buffers.length];
+        int count = 0;
+        long position = 0;
+        while (position < fileSize) {
+            long length = Math.min(REGION_SIZE, fileSize - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length < fileSize) {
+                int last = (int) length - 1;
+                while (last >= 0 && buffer.get(last) != '\n') {
+                    last--;
+                }
+                if (last < 0) {
+                    throw new IOException("Line longer than " + REGION_SIZE + " bytes at offset " + position);
+                }
+                length = last + 1;
+                buffer.limit((int) length);
+            }
+
+            if (count == buffers.length) {
+                buffers = Arrays.copyOf(buffers, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            buffers[count] = buffer;
+            starts[count] = position;
+            count++;
+            position += length;
+        }
+
+        regions = Arrays.copyOf(buffers, count);
+        regionStarts = Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Validates every line and builds the index of valid lines, then orders it by size with a counting sort. The
+     * lines that are not valid configurations are collected in the load report.
+     */
+    private void index(long startTime) throws IOException {
+        long[] found = new long[1024];
+        int[] foundSizes = new int[1024];
+        int count = 0;
+        int maxSize = 0;
+        AsciiSequence line = new AsciiSequence();
+        AsciiSequence data = new AsciiSequence();
+        List<LoadReport.LineError> errors = new ArrayList<>();
+        long lineCount = 0;
+
+        for (int r = 0; r < regions.length; r++) {
+            ByteBuffer region = regions[r];
+            int limit = region.limit();
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && region.get(end) != '\n') {
+                    end++;
+                }
+                int next = end + 1;
+                if (end > start && region.get(end - 1) == '\r') {
+                    end--;
+                }
+
+                line.set(region, start, end);
+                lineCount++;
+                try {
+                    int size = ConfigurationParser.parseSize(line);
+                    data.set(region, start + ConfigurationParser.dataStart(line), end);
+                    ConfigurationParser.validate(data, size);
+                    if (end - start > LENGTH_MASK) {
+                        throw new IOException("Configuration longer than " + LENGTH_MASK + " bytes at offset " +
+                                (regionStarts[r] + start));
+                    }
+
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                        foundSizes = Arrays.copyOf(foundSizes, count * 2);
+                    }
+                    found[count] = ((regionStarts[r] + start) << LENGTH_BITS) | (end - start);
+                    foundSizes[count] = size;
+                    maxSize = Math.max(maxSize, size);
+                    count++;
+                } catch (ConfigurationFormatException e) {
+                    errors.add(new LoadReport.LineError(lineCount, e));
+                }
+                start = next;
+            }
+        }
+
+        int[] firstOfSize = new int[maxSize + 2];
+        for (int i = 0; i < count; i++) {
+            firstOfSize[foundSizes[i] + 1]++;
+        }
+        for (int s = 1; s < firstOfSize.length; s++) {
+            firstOfSize[s] += firstOfSize[s - 1];
+        }
+        int distinct = 0;
+        for (int size = 0; size <= maxSize; size++) {
+            if (firstOfSize[size + 1] > firstOfSize[size]) {
+                distinct++;
+            }
+        }
+        sizes = new int[distinct];
+        sizeStarts = new int[distinct + 1];
+        int d = 0;
+        for (int size = 0; size <= maxSize; size++) {
+            if (firstOfSize[size + 1] > firstOfSize[size]) {
+                sizes[d] = size;
+                sizeStarts[d++] = firstOfSize[size];
+            }
+        }
+        sizeStarts[distinct] = count;
+
+        entries = new long[count];
+        for (int i = 0; i < count; i++) {
+            entries[firstOfSize[foundSizes[i]]++] = found[i];
+        }
+        report = new LoadReport(getConfigurationsSizeSorted(), errors, lineCount,
+                System.currentTimeMillis() - startTime);
+    }
+
+    // accessor for the number of configurations
+    public int size() {
+        return entries.length;
+    }
+
+    // accessor for the result of opening the store, whose configurations are the lazy list sorted by size
+    public LoadReport getLoadReport() {
+        return report;
+    }
+
+    /** Returns the different sizes of the configurations in increasing order. */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /** Returns the index in the sorted list of the first configuration of the given size, or -1 if there is none. */
+    public int indexOfSize(int size) {
+        int d = Arrays.binarySearch(sizes, size);
+        return d < 0 ? -1 : sizeStarts[d];
+    }
+
+    /**
+     * Creates the configuration with the given number.
+     * @param index the position of the configuration in the list of all configurations sorted by size
+     */
+    public Configuration get(int index) {
+        long offset = entries[index] >>> LENGTH_BITS;
+        int length = (int) (entries[index] & LENGTH_MASK);
+        int r = Arrays.binarySearch(regionStarts, offset);
+        if (r < 0) {
+            r = -r - 2;
+        }
+
+        byte[] bytes = new byte[length];
+        regions[r].get((int) (offset - regionStarts[r]), bytes);
+        try {
+            return new Configuration(new String(bytes, StandardCharsets.ISO_8859_1));
+        } catch (ConfigurationFormatException e) {
+            // every indexed line was validated when the store was opened
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Returns a list of all configurations sorted by size that creates each configuration when it is read. */
+    public List<Configuration> getConfigurationsSizeSorted() {
+        return new SortedView();
+    }
+
+    /** Returns a stream of all configurations sorted by size. */
+    public Stream<Configuration> stream() {
+        return IntStream.range(0, size()).mapToObj(this::get);
+    }
+
+    @Override
+    /** Returns an iterator over all configurations sorted by size. */
+    public Iterator<Configuration> iterator() {
+        return getConfigurationsSizeSorted().iterator();
+    }
+
+    // an unmodifiable list view that creates configurations on demand
+    private class SortedView extends AbstractList<Configuration> implements RandomAccess {
+        @Override
+        public Configuration get(int index) {
+            return MappedConfigurationStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return MappedConfigurationStore.this.size();
+        }
+    }
+
+    // a reusable view of a range of bytes of a buffer as characters, so lines can be validated in place
+    private static class AsciiSequence implements CharSequence {
+        private ByteBuffer buffer;
+        private int start;
+        private int end;
+
+        void set(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = Math.max(start, end);
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length()];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -4,6 +4,7 @@ public class MatrixTiles extends Tiles implements Cloneable{
     private byte[][] tiles;     // represents the game board
     private int emptyCol;       // represents the column of the empty tile
     private int emptyRow;       // represents the row of the empty tile
+    private int invalidTile;    // a tile value that does not fit into a byte, reported by ensureValidity
 
     // Constructor for MatrixTiles to initialise the states of the class
     public MatrixTiles(Configuration configuration) throws ConfigurationFormatException, InvalidConfigurationException {
@@ -25,6 +26,7 @@ public class MatrixTiles extends Tiles implements Cloneable{
         super(other);
         this.emptyCol = other.emptyCol;
         this.emptyRow = other.emptyRow;
+        this.invalidTile = other.invalidTile;
         tiles = copyMatrix(other.tiles);
     }
 
@@ -56,6 +58,8 @@ public class MatrixTiles extends Tiles implements Cloneable{
     @Override
     /** Makes a move by sliding a tile into the empty space in the specified direction. */
     public void makeMove(Direction direction) {
+        int tilePos = tilePosition(direction);
+        trackMove(getTileUnchecked(tilePos), tilePos, getEmptyPosition());
         switch (direction) {
             case UP:
                 tiles[emptyRow][emptyCol] = tiles[emptyRow + 1][emptyCol];
@@ -81,34 +85,35 @@ public class MatrixTiles extends Tiles implements Cloneable{
     }
 
     @Override
-    // accessor for a specific tile
-    public byte getTile(int col, int row) {
-        if (row < 0 || row >= getSize()) {
-            System.out.println("Error: position out of the board");
-            System.exit(0);
-        }
-        if (col < 0 || col >= getSize()) {
-            System.out.println("Error: position out of the board");
-            System.exit(0);
+    // accessor for a tile without bounds checks
+    public int getTileUnchecked(int pos) {
+        return tiles[pos / tiles.length][pos % tiles.length];
+    }
+
+    @Override
+    // mutator for a tile without bounds checks
+    public void setTileUnchecked(int pos, int value) {
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            invalidTile = value;
         }
 
-        return tiles[row][col];
+        trackSet(pos, tiles[pos / tiles.length][pos % tiles.length], value);
+        tiles[pos / tiles.length][pos % tiles.length] = (byte) value;
     }
 
+    @Override
+    // accessor for the position of the empty space
+    public int getEmptyPosition() {
+        return emptyRow * tiles.length + emptyCol;
+    }
 
     @Override
-    // mutator for a specific tile
-    public void setTile(int col, int row, byte value) {
-        if (row < 0 || row >= getSize()) {
-            System.out.println("Error: position out of the board");
-            System.exit(0);
+    /** Reports tile values that were too large to be stored before performing the usual checks. */
+    public void ensureValidity() throws InvalidConfigurationException {
+        if (invalidTile != 0) {
+            throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + invalidTile);
         }
-        if (col < 0 || col >= getSize()) {
-            System.out.println("Error: position out of the board");
-            System.exit(0);
-        }
-
-        tiles[row][col] = value;
+        super.ensureValidity();
     }
 
     @Override
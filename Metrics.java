@@ -0,0 +1,342 @@
+/** A class for lightweight metrics of loading, playing and solving: counters and histograms that many threads can
+ * record into without contention. Metrics are off unless the program is started with -Dnpuzzle.metrics=true; the
+ * flag is a static final constant, so with metrics off the JIT removes every guarded recording from the hot paths.
+ * Code that records a metric keeps it in a static final field and guards every recording:
+ *
+ *     private static final Metrics.Counter MOVES = Metrics.counter("tiles.moves");
+ *     ...
+ *     if (Metrics.ENABLED) {
+ *         MOVES.increment();
+ *     }
+ *
+ * Histograms count values in buckets of powers of two, so recording is a leading-zero count and one addition, and
+ * percentiles are reported as the upper bound of their bucket. The metrics can be read as a text or JSON snapshot,
+ * written periodically by a reporter thread, or browsed over JMX as the MBean "npuzzle:type=Metrics". */
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("npuzzle.metrics");
+    public static final String OBJECT_NAME = "npuzzle:type=Metrics";
+
+    private static final ConcurrentSkipListMap<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final ConcurrentSkipListMap<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    /** A count of events, such as moves made or nodes expanded. */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        /** Adds one to the counter. */
+        public void increment() {
+            value.increment();
+        }
+
+        /** Adds 'amount' to the counter. */
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        // accessor for the value of the counter
+        public long get() {
+            return value.sum();
+        }
+
+        private void reset() {
+            value.reset();
+        }
+    }
+
+    /** A distribution of non-negative values, such as durations in nanoseconds, in buckets of powers of two. */
+    public static final class Histogram {
+        private static final int BUCKETS = 65;      // bucket b holds the values with b significant bits
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /** Creates a histogram that is not registered under any name, for tools that report on their own. */
+        public Histogram() {
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        /** Records a value; negative values are recorded as 0. */
+        public void record(long value) {
+            value = Math.max(0, value);
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /** Records the number of nanoseconds since 'start', a value of System.nanoTime. */
+        public void recordSince(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        // accessor for the number of recorded values
+        public long getCount() {
+            return count.sum();
+        }
+
+        // accessor for the sum of the recorded values
+        public long getSum() {
+            return sum.sum();
+        }
+
+        // accessor for the largest recorded value
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns an upper bound of the given percentile of the recorded values.
+         * @param percentile a number between 0 and 100
+         */
+        public long getPercentile(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] = buckets[b].sum();
+                total += counts[b];
+            }
+
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts[b];
+                if (seen >= rank && counts[b] > 0) {
+                    return Math.min(getMax(), b == 0 ? 0 : b == 64 ? Long.MAX_VALUE : (1L << b) - 1);
+                }
+            }
+            return 0;
+        }
+
+        private void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    /** Returns the counter with the given name, creating it on first use. */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /** Returns the histogram with the given name, creating it on first use. */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /** Sets every counter and histogram back to zero. */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    /** Returns the metrics as text, one line per counter or histogram in order of name. */
+    public static String snapshotText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram h = entry.getValue();
+            text.append(entry.getKey())
+                    .append(" count=").append(h.getCount())
+                    .append(" sum=").append(h.getSum())
+                    .append(" p50=").append(h.getPercentile(50))
+                    .append(" p90=").append(h.getPercentile(90))
+                    .append(" p99=").append(h.getPercentile(99))
+                    .append(" max=").append(h.getMax()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /** Returns the metrics as a JSON object with the members "counters" and "histograms". */
+    public static String snapshotJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue().get());
+            separator = ",";
+        }
+        json.append("},\"histograms\":{");
+        separator = "";
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram h = entry.getValue();
+            json.append(separator).append('"').append(entry.getKey()).append("\":{")
+                    .append("\"count\":").append(h.getCount())
+                    .append(",\"sum\":").append(h.getSum())
+                    .append(",\"p50\":").append(h.getPercentile(50))
+                    .append(",\"p90\":").append(h.getPercentile(90))
+                    .append(",\"p99\":").append(h.getPercentile(99))
+                    .append(",\"max\":").append(h.getMax()).append('}');
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Writes a snapshot to 'out' every 'period' milliseconds from a daemon thread.
+     * @return the scheduled task, which can be cancelled to stop reporting
+     */
+    public static synchronized ScheduledFuture<?> startReporter(long period, PrintStream out, boolean json) {
+        if (reporter == null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return reporter.scheduleAtFixedRate(() -> {
+            out.println(json ? snapshotJson() : snapshotText());
+            out.flush();
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server unless they are registered already. Every counter is
+     * an attribute named after it; every histogram has the attributes name.count, name.sum, name.p50, name.p99
+     * and name.max.
+     */
+    public static synchronized void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new MetricsMBean(), name);
+        }
+    }
+
+    /**
+     * Registers the MBean and starts a reporter if metrics are enabled. The reporter writes to standard error
+     * every -Dnpuzzle.metrics.period milliseconds, as JSON if -Dnpuzzle.metrics.json=true.
+     */
+    public static void startFromProperties() {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            registerMBean();
+        } catch (JMException e) {
+            System.err.println("Failed to register metrics MBean: " + e.getMessage());
+        }
+        long period = Long.getLong("npuzzle.metrics.period", 0);
+        if (period > 0) {
+            startReporter(period, System.err, Boolean.getBoolean("npuzzle.metrics.json"));
+        }
+    }
+
+    // exposes the current metrics as read-only attributes
+    private static final class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Counter counter = counters.get(attribute);
+            if (counter != null) {
+                return counter.get();
+            }
+            int dot = attribute.lastIndexOf('.');
+            Histogram h = dot < 0 ? null : histograms.get(attribute.substring(0, dot));
+            if (h != null) {
+                switch (attribute.substring(dot + 1)) {
+                    case "count":
+                        return h.getCount();
+                    case "sum":
+                        return h.getSum();
+                    case "p50":
+                        return h.getPercentile(50);
+                    case "p99":
+                        return h.getPercentile(99);
+                    case "max":
+                        return h.getMax();
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // left out, as the interface asks
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            if (action.equals("reset")) {
+                reset();
+                return null;
+            }
+            if (action.equals("snapshotJson")) {
+                return snapshotJson();
+            }
+            throw new ReflectionException(new NoSuchMethodException(action), "Unknown operation: " + action);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            ArrayList<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : counters.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "long", "counter", true, false, false));
+            }
+            for (String name : histograms.keySet()) {
+                for (String part : new String[] { "count", "sum", "p50", "p99", "max" }) {
+                    attributes.add(new MBeanAttributeInfo(name + "." + part, "long", "histogram", true, false, false));
+                }
+            }
+            MBeanOperationInfo[] operations = {
+                    new MBeanOperationInfo("reset", "Sets all metrics to zero", null, "void",
+                            MBeanOperationInfo.ACTION),
+                    new MBeanOperationInfo("snapshotJson", "Returns all metrics as JSON", null, "java.lang.String",
+                            MBeanOperationInfo.INFO) };
+            return new MBeanInfo(Metrics.class.getName(), "N-Puzzle metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, operations, null);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/** A class for the history of a game that stores every move as 2 bits of a growable long array instead of a copy
+ * of the board after each move. Going back undoes the last move and going forward repeats it. A copy of the board
+ * is kept every CHECKPOINT_INTERVAL moves so that seeking to any point of a long game only replays a few moves.
+ * Making a new move after going back discards the moves that could have been repeated. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class MoveHistory {
+    public static final int CHECKPOINT_INTERVAL = 256;
+    private static final Tiles.Direction[] DIRECTIONS = Tiles.Direction.values();
+    private static final int MOVES_PER_WORD = Long.SIZE / 2;
+    private static final Metrics.Histogram CHECKPOINT_TIME = Metrics.histogram("history.checkpoint.ns");
+    private static final Metrics.Histogram RESTORE_TIME = Metrics.histogram("history.restore.ns");
+
+    private Tiles tiles;                    // the board at the current position
+    private long[] moves = new long[4];     // the direction of move i is stored in bits 2i and 2i + 1 of the words
+    private int length;                     // the number of recorded moves
+    private int position;                   // the number of recorded moves applied to 'tiles'
+    private ArrayList<Tiles> checkpoints = new ArrayList<>();   // the board after every CHECKPOINT_INTERVAL moves
+
+    // Constructor for MoveHistory
+    public MoveHistory(Tiles tiles) {
+        this.tiles = tiles;
+        checkpoints.add(tiles.clone());
+    }
+
+    // accessor for the board at the current position; seeking may replace it with another object
+    public Tiles getTiles() {
+        return tiles;
+    }
+
+    // accessor for the number of moves applied to the board
+    public int getPosition() {
+        return position;
+    }
+
+    // accessor for the number of recorded moves
+    public int getLength() {
+        return length;
+    }
+
+    /** Returns the direction of the move with the given number. */
+    public Tiles.Direction get(int move) {
+        int bits = (int) (moves[move / MOVES_PER_WORD] >>> (2 * (move % MOVES_PER_WORD))) & 3;
+        return DIRECTIONS[bits];
+    }
+
+    /**
+     * Makes a move on the board and records it, discarding the moves after the current position.
+     * @return true if the move was possible, false otherwise
+     */
+    public boolean move(Tiles.Direction direction) {
+        int before = tiles.getMoveCount();
+        tiles.move(direction);
+        if (tiles.getMoveCount() == before) {
+            return false;
+        }
+
+        length = position;
+        while (checkpoints.size() > position / CHECKPOINT_INTERVAL + 1) {
+            checkpoints.remove(checkpoints.size() - 1);
+        }
+
+        if (length / MOVES_PER_WORD == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        int word = length / MOVES_PER_WORD;
+        int shift = 2 * (length % MOVES_PER_WORD);
+        moves[word] = (moves[word] & ~(3L << shift)) | ((long) direction.ordinal() << shift);
+        length++;
+        position++;
+
+        if (position % CHECKPOINT_INTERVAL == 0) {
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            checkpoints.add(tiles.clone());
+            if (Metrics.ENABLED) {
+                CHECKPOINT_TIME.recordSince(start);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Undoes the move before the current position.
+     * @return true if there was a move to undo, false if the board is at move 0
+     */
+    public boolean back() {
+        if (position == 0) {
+            return false;
+        }
+
+        position--;
+        tiles.makeMove(get(position).opposite());
+        tiles.decrementMoveCount();
+        return true;
+    }
+
+    /**
+     * Repeats the move after the current position.
+     * @return true if there was a move to repeat, false if the board is at the last recorded move
+     */
+    public boolean forward() {
+        if (position == length) {
+            return false;
+        }
+
+        tiles.makeMove(get(position));
+        tiles.incrementMoveCount();
+        position++;
+        return true;
+    }
+
+    /** Moves to the given position, starting from the closest checkpoint when that is fewer moves away. */
+    public void seek(int target) {
+        if (target < 0 || target > length) {
+            throw new IndexOutOfBoundsException("Position " + target + " outside the history of " + length + " moves");
+        }
+
+        int checkpoint = target / CHECKPOINT_INTERVAL;
+        if (Math.abs(target - position) > target - checkpoint * CHECKPOINT_INTERVAL) {
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            tiles = checkpoints.get(checkpoint).clone();
+            if (Metrics.ENABLED) {
+                RESTORE_TIME.recordSince(start);
+            }
+            position = checkpoint * CHECKPOINT_INTERVAL;
+        }
+        while (position < target) {
+            forward();
+        }
+        while (position > target) {
+            back();
+        }
+    }
+}
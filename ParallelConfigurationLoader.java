@@ -0,0 +1,197 @@
+/** A class that loads text stores on several threads. The lines are read in chunks by the calling thread and every
+ * chunk is parsed on a pool of threads, while the chunks are collected in the order they were read, so the result
+ * keeps the order of the lines. At most two chunks per thread are in flight, which bounds the memory used for
+ * lines that have been read but not parsed. Lines that cannot be parsed do not stop the load; they are collected
+ * with their line number in the LoadReport. With setCheckTiles the tiles of every board are also checked with a
+ * BoardValidator and boards with bad tiles are reported instead of being loaded. */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ParallelConfigurationLoader {
+    public static final int DEFAULT_CHUNK_LINES = 4096;
+
+    private final int parallelism;
+    private final int chunkLines;
+    private boolean checkTiles;     // whether the tiles of every board are checked as well as the format
+
+    // the configurations and errors of the lines of one chunk
+    private static class Chunk {
+        private final ArrayList<Configuration> configurations = new ArrayList<>();
+        private final ArrayList<LoadReport.LineError> errors = new ArrayList<>();
+    }
+
+    // Constructor for ParallelConfigurationLoader
+    public ParallelConfigurationLoader() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_LINES);
+    }
+
+    // Constructor for ParallelConfigurationLoader
+    public ParallelConfigurationLoader(int parallelism, int chunkLines) {
+        if (parallelism < 1 || chunkLines < 1) {
+            throw new IllegalArgumentException("At least one thread and one line per chunk are needed");
+        }
+        this.parallelism = parallelism;
+        this.chunkLines = chunkLines;
+    }
+
+    // mutator for whether the tiles of every board are checked as well as the format
+    public void setCheckTiles(boolean checkTiles) {
+        this.checkTiles = checkTiles;
+    }
+
+    /**
+     * Loads the lines of a text store.
+     * @throws IOException if the file cannot be read
+     */
+    public LoadReport load(String filename) throws IOException {
+        try (Reader r = new FileReader(filename)) {
+            return load(r);
+        }
+    }
+
+    /**
+     * Loads every line of 'r' as a configuration. An input that fits into a single chunk is parsed on the calling
+     * thread without starting any others.
+     * @throws IOException if 'r' cannot be read or the load is interrupted
+     */
+    public LoadReport load(Reader r) throws IOException {
+        return load(r, 1);
+    }
+
+    /**
+     * Loads every line of 'r' as a configuration, numbering the lines from 'firstLine' in the report, for inputs
+     * that continue a store read earlier.
+     * @throws IOException if 'r' cannot be read or the load is interrupted
+     */
+    public LoadReport load(Reader r, long firstLine) throws IOException {
+        long startTime = System.currentTimeMillis();
+        BufferedReader in = new BufferedReader(r, 1 << 16);
+        List<Configuration> configurations = new ArrayList<>();
+        List<LoadReport.LineError> errors = new ArrayList<>();
+
+        String[] lines = readChunk(in);
+        long lineCount = lines.length;
+        if (lines.length < chunkLines) {
+            collect(parse(lines, firstLine), configurations, errors);
+            return new LoadReport(configurations, errors, lineCount, System.currentTimeMillis() - startTime);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+            while (lines.length > 0 || !pending.isEmpty()) {
+                while (lines.length > 0 && pending.size() < 2 * parallelism) {
+                    String[] chunk = lines;
+                    long chunkStart = firstLine + lineCount - lines.length;
+                    pending.add(pool.submit(() -> parse(chunk, chunkStart)));
+                    lines = readChunk(in);
+                    lineCount += lines.length;
+                }
+                collect(pending.poll().get(), configurations, errors);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Loading was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new LoadReport(configurations, errors, lineCount, System.currentTimeMillis() - startTime);
+    }
+
+    // reads up to 'chunkLines' lines, returning an empty array at the end of the input
+    private String[] readChunk(BufferedReader in) throws IOException {
+        String[] lines = new String[chunkLines];
+        int count = 0;
+        String line;
+        while (count < chunkLines && (line = in.readLine()) != null) {
+            lines[count++] = line;
+        }
+        return count == chunkLines ? lines : Arrays.copyOf(lines, count);
+    }
+
+    // parses the lines of a chunk, whose first line has the number 'firstLine'
+    private Chunk parse(String[] lines, long firstLine) {
+        Chunk chunk = new Chunk();
+        chunk.configurations.ensureCapacity(lines.length);
+        BoardValidator validator = checkTiles ? new BoardValidator() : null;
+        int[] values = new int[0];
+        for (int i = 0; i < lines.length; i++) {
+            try {
+                Configuration c = new Configuration(lines[i]);
+                if (checkTiles) {
+                    int cells = c.getSize() * c.getSize();
+                    if (values.length < cells) {
+                        values = new int[cells];
+                    }
+                    c.getValues(values);
+                    validator.validate(values, c.getSize());
+                }
+                chunk.configurations.add(c);
+            } catch (Exception e) {
+                chunk.errors.add(new LoadReport.LineError(firstLine + i, e));
+            }
+        }
+        return chunk;
+    }
+
+    // appends the results of a chunk to those of the chunks before it
+    private static void collect(Chunk chunk, List<Configuration> configurations, List<LoadReport.LineError> errors) {
+        configurations.addAll(chunk.configurations);
+        errors.addAll(chunk.errors);
+    }
+
+    public static void main(String args[]) {
+        if (args.length < 1) {
+            System.out.println("Usage: java ParallelConfigurationLoader <store> [-check] [-threads <n>]");
+            System.out.println("Loads a text store on several threads and reports the lines that could not be read.");
+            return;
+        }
+        try {
+            int threads = Runtime.getRuntime().availableProcessors();
+            boolean check = false;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("-check")) {
+                    check = true;
+                } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+                }
+            }
+
+            ParallelConfigurationLoader loader = new ParallelConfigurationLoader(threads, DEFAULT_CHUNK_LINES);
+            loader.setCheckTiles(check);
+            LoadReport report = loader.load(args[0]);
+            for (LoadReport.LineError error : report.getErrors()) {
+                System.out.println(error);
+            }
+            System.out.println("Loaded " + report.getConfigurations().size() + " of " + report.getLineCount() +
+                    " lines in " + report.getElapsedTime() + " ms");
+        } catch (NumberFormatException e) {
+            System.out.println("The number of threads must be a number");
+        } catch (IOException ioe) {
+            System.out.println("Failed to load configuration store");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/** A class for a set of disjoint pattern databases. Each pattern is a group of tiles, and its table stores, for
+ * every placement of those tiles, the number of moves of pattern tiles needed to bring them home while all other
+ * tiles are ignored. Because the patterns are disjoint and only moves of their own tiles are counted, the values
+ * of all patterns can be added up and still never overestimate.
+ *
+ * A table is indexed by the sum of pos(t_i) * cells^i over the tiles t_i of its pattern, which lets a move update
+ * the index with a single addition. Tables are generated with a breadth-first search backwards from the solved
+ * board, written to a binary file once and memory-mapped on load, so lookups never touch the heap. */
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class PatternDatabase {
+    private static final int MAGIC = 0x4E504442;    // "NPDB"
+    private static final int VERSION = 1;
+    private static final int UNSEEN = 0xFF;
+
+    private int size;
+    private int cells;
+    private int[][] patterns;       // the tiles of each pattern
+    private int[] patternOf;        // the pattern of each tile value, -1 for tiles that belong to no pattern
+    private int[] weightOf;         // the factor of each tile value in the index of its pattern
+    private ByteBuffer[] tables;
+
+    // Constructor for PatternDatabase
+    private PatternDatabase(int size, int[][] patterns, ByteBuffer[] tables) {
+        this.size = size;
+        this.cells = size * size;
+        this.patterns = patterns;
+        this.tables = tables;
+        patternOf = new int[cells];
+        weightOf = new int[cells];
+        Arrays.fill(patternOf, -1);
+        for (int p = 0; p < patterns.length; p++) {
+            int weight = 1;
+            for (int tile : patterns[p]) {
+                patternOf[tile] = p;
+                weightOf[tile] = weight;
+                weight *= cells;
+            }
+        }
+    }
+
+    // accessor for the size of the boards this database applies to
+    public int getSize() {
+        return size;
+    }
+
+    // accessor for the number of patterns
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    // accessor for the pattern a tile belongs to, -1 if it belongs to none
+    public int getPatternOf(int tile) {
+        return patternOf[tile];
+    }
+
+    // accessor for the factor of a tile in the index of its pattern
+    public int getWeight(int tile) {
+        return weightOf[tile];
+    }
+
+    /** Returns the number of moves stored for placement 'index' of pattern 'pattern'. */
+    public int lookup(int pattern, int index) {
+        return tables[pattern].get(index) & 0xFF;
+    }
+
+    /** Returns the index of the placement of the tiles of 'pattern' on 'tiles'. */
+    public int indexOf(int pattern, Tiles tiles) {
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int value = tiles.getTileUnchecked(i * size + j);
+                if (value != Tiles.EMPTY && patternOf[value] == pattern) {
+                    index += (i * size + j) * weightOf[value];
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns a standard partition of the tiles for the given board size:
+     * 4-4 for the 8-puzzle, 6-6-3 for the 15-puzzle and 6-6-6-6 for the 24-puzzle.
+     */
+    public static int[][] defaultPatterns(int size) {
+        switch (size) {
+            case 3:
+                return new int[][] {{1, 2, 3, 4}, {5, 6, 7, 8}};
+            case 4:
+                return new int[][] {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}};
+            case 5:
+                return new int[][] {{1, 2, 5, 6, 7, 12}, {3, 4, 8, 9, 13, 14},
+                        {10, 11, 15, 16, 20, 21}, {17, 18, 19, 22, 23, 24}};
+            default:
+                throw new IllegalArgumentException("No default patterns for boards of size " + size);
+        }
+    }
+
+    /**
+     * Generates the tables of all patterns. Generating the 24-puzzle tables tracks every placement of six tiles
+     * together with the empty space and needs several gigabytes of heap; it only has to be done once.
+     * @param size the size of the board
+     * @param patterns disjoint groups of tile values between 1 and size * size - 1
+     * @return the generated database
+     */
+    public static PatternDatabase generate(int size, int[][] patterns) {
+        int cells = size * size;
+        boolean[] used = new boolean[cells];
+        for (int[] pattern : patterns) {
+            if (Math.pow(cells, pattern.length) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Pattern " + Arrays.toString(pattern) + " is too large");
+            }
+            for (int tile : pattern) {
+                if (tile <= 0 || tile >= cells || used[tile]) {
+                    throw new IllegalArgumentException("Invalid or repeated tile " + tile + " in patterns");
+                }
+                used[tile] = true;
+            }
+        }
+
+        ByteBuffer[] tables = new ByteBuffer[patterns.length];
+        for (int p = 0; p < patterns.length; p++) {
+            tables[p] = ByteBuffer.wrap(generateTable(size, patterns[p]));
+        }
+
+        return new PatternDatabase(size, patterns, tables);
+    }
+
+    /**
+     * Computes the table of a single pattern. The search runs over placements of the pattern tiles together with
+     * the empty space. Moving the empty space over a cell that no pattern tile occupies is free, so at each depth
+     * the whole region the empty space can reach is flooded before moves of pattern tiles lead to the next depth.
+     */
+    private static byte[] generateTable(int size, int[] pattern) {
+        int cells = size * size;
+        int k = pattern.length;
+        int ranks = 1;
+        for (int i = 0; i < k; i++) {
+            ranks *= cells - i;
+        }
+
+        byte[][] distance = new byte[cells][ranks];
+        for (byte[] d : distance) {
+            Arrays.fill(d, (byte) UNSEEN);
+        }
+
+        int[] positions = new int[k];
+        int[] occupant = new int[cells];    // the slot of the pattern tile on each cell, -1 if none
+        int[] stack = new int[cells];
+        for (int i = 0; i < k; i++) {
+            positions[i] = pattern[i] - 1;
+        }
+        distance[cells - 1][rank(positions, cells)] = 0;
+
+        boolean deeper = true;
+        for (int depth = 0; deeper; depth++) {
+            deeper = false;
+            for (int r = 0; r < ranks; r++) {
+                boolean present = false;
+                for (int blank = 0; blank < cells && !present; blank++) {
+                    present = (distance[blank][r] & 0xFF) == depth;
+                }
+                if (!present) {
+                    continue;
+                }
+
+                unrank(r, cells, positions);
+                Arrays.fill(occupant, -1);
+                for (int i = 0; i < k; i++) {
+                    occupant[positions[i]] = i;
+                }
+
+                long flooded = 0;
+                for (int blank = 0; blank < cells; blank++) {
+                    if ((distance[blank][r] & 0xFF) != depth || (flooded & (1L << blank)) != 0) {
+                        continue;
+                    }
+
+                    int top = 0;
+                    stack[top++] = blank;
+                    flooded |= 1L << blank;
+                    while (top > 0) {
+                        int cell = stack[--top];
+                        distance[cell][r] = (byte) depth;
+                        int col = cell % size;
+                        int row = cell / size;
+                        for (int d = 0; d < 4; d++) {
+                            int nCol = col + (d == 1 ? 1 : d == 3 ? -1 : 0);
+                            int nRow = row + (d == 0 ? 1 : d == 2 ? -1 : 0);
+                            if (nCol < 0 || nCol >= size || nRow < 0 || nRow >= size) {
+                                continue;
+                            }
+                            int neighbour = nRow * size + nCol;
+                            int slot = occupant[neighbour];
+                            if (slot < 0) {
+                                if ((flooded & (1L << neighbour)) == 0) {
+                                    flooded |= 1L << neighbour;
+                                    stack[top++] = neighbour;
+                                }
+                                continue;
+                            }
+
+                            // the pattern tile slides into the empty space, which takes its place
+                            positions[slot] = cell;
+                            int next = rank(positions, cells);
+                            positions[slot] = neighbour;
+                            if ((distance[neighbour][next] & 0xFF) == UNSEEN) {
+                                distance[neighbour][next] = (byte) (depth + 1);
+                                deeper = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        int entries = 1;
+        for (int i = 0; i < k; i++) {
+            entries *= cells;
+        }
+        byte[] table = new byte[entries];
+        for (int r = 0; r < ranks; r++) {
+            int best = UNSEEN;
+            for (int blank = 0; blank < cells; blank++) {
+                best = Math.min(best, distance[blank][r] & 0xFF);
+            }
+            unrank(r, cells, positions);
+            int index = 0;
+            for (int i = k - 1; i >= 0; i--) {
+                index = index * cells + positions[i];
+            }
+            table[index] = (byte) best;
+        }
+
+        return table;
+    }
+
+    /** Returns the rank of a placement of distinct positions among all placements of that many tiles. */
+    private static int rank(int[] positions, int cells) {
+        int rank = 0;
+        long taken = 0;
+        for (int i = 0; i < positions.length; i++) {
+            int p = positions[i];
+            int digit = p - Long.bitCount(taken & ((1L << p) - 1));
+            rank = rank * (cells - i) + digit;
+            taken |= 1L << p;
+        }
+
+        return rank;
+    }
+
+    /** Fills 'positions' with the placement that has the given rank. */
+    private static void unrank(int rank, int cells, int[] positions) {
+        int k = positions.length;
+        for (int i = k - 1; i >= 0; i--) {
+            positions[i] = rank % (cells - i);
+            rank /= cells - i;
+        }
+
+        long taken = 0;
+        for (int i = 0; i < k; i++) {
+            int digit = positions[i];
+            int p = 0;
+            while (true) {
+                if ((taken & (1L << p)) == 0) {
+                    if (digit == 0) {
+                        break;
+                    }
+                    digit--;
+                }
+                p++;
+            }
+            positions[i] = p;
+            taken |= 1L << p;
+        }
+    }
+
+    /** Writes the database to a binary file: a header describing the patterns followed by the raw tables. */
+    public void write(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw");
+             FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(headerLength(patterns));
+            header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(patterns.length);
+            for (int[] pattern : patterns) {
+                header.putInt(pattern.length);
+                for (int tile : pattern) {
+                    header.putInt(tile);
+                }
+            }
+            header.flip();
+            channel.write(header);
+
+            for (ByteBuffer table : tables) {
+                ByteBuffer t = table.duplicate();
+                t.clear();
+                while (t.hasRemaining()) {
+                    channel.write(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a database written by write. The tables are memory-mapped rather than read into the heap.
+     * @throws IOException if the file cannot be read or is not a pattern database
+     */
+    public static PatternDatabase load(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer fixed = ByteBuffer.allocate(16);
+            readFully(channel, fixed, 0);
+            if (fixed.getInt() != MAGIC || fixed.getInt() != VERSION) {
+                throw new IOException("Not a pattern database: " + filename);
+            }
+            int size = fixed.getInt();
+            int[][] patterns = new int[fixed.getInt()][];
+
+            long offset = 16;
+            ByteBuffer value = ByteBuffer.allocate(4);
+            for (int p = 0; p < patterns.length; p++) {
+                value.clear();
+                readFully(channel, value, offset);
+                offset += 4;
+                patterns[p] = new int[value.getInt()];
+                for (int i = 0; i < patterns[p].length; i++) {
+                    value.clear();
+                    readFully(channel, value, offset);
+                    offset += 4;
+                    patterns[p][i] = value.getInt();
+                }
+            }
+
+            int cells = size * size;
+            ByteBuffer[] tables = new ByteBuffer[patterns.length];
+            for (int p = 0; p < patterns.length; p++) {
+                long entries = (long) Math.pow(cells, patterns[p].length);
+                if (offset + entries > channel.size()) {
+                    throw new IOException("Truncated pattern database: " + filename);
+                }
+                // the mapping stays valid after the channel is closed
+                tables[p] = channel.map(FileChannel.MapMode.READ_ONLY, offset, entries);
+                offset += entries;
+            }
+
+            return new PatternDatabase(size, patterns, tables);
+        }
+    }
+
+    // returns the number of bytes of the header describing 'patterns'
+    private static int headerLength(int[][] patterns) {
+        int length = 16;
+        for (int[] pattern : patterns) {
+            length += 4 + 4 * pattern.length;
+        }
+
+        return length;
+    }
+
+    // reads from 'channel' starting at 'position' until 'buffer' is full, then flips it
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of pattern database");
+            }
+        }
+        buffer.flip();
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 2) {
+            System.out.println("Usage: java PatternDatabase <board size> <output file>");
+            return;
+        }
+        try {
+            int size = Integer.parseInt(args[0]);
+            long start = System.currentTimeMillis();
+            PatternDatabase database = generate(size, defaultPatterns(size));
+            database.write(args[1]);
+            System.out.println("Generated in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException ioe) {
+            System.out.println("Failed to write pattern database");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
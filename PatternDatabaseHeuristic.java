@@ -0,0 +1,49 @@
+/** A heuristic that adds up the values of the disjoint patterns of a PatternDatabase. The index of every pattern
+ * is kept between calls, so a move costs one addition and two table lookups and never allocates. */
+
+public class PatternDatabaseHeuristic implements Heuristic {
+    private PatternDatabase database;
+    private int[] index;        // the current index of each pattern
+    private int[] value;        // the current table value of each pattern
+    private int estimate;
+
+    // Constructor for PatternDatabaseHeuristic
+    public PatternDatabaseHeuristic(PatternDatabase database) {
+        this.database = database;
+        index = new int[database.getPatternCount()];
+        value = new int[database.getPatternCount()];
+    }
+
+    @Override
+    /** Computes the index and the value of every pattern of 'tiles' from scratch. */
+    public int reset(Tiles tiles) {
+        if (tiles.getSize() != database.getSize()) {
+            throw new IllegalArgumentException("Pattern database for size " + database.getSize() +
+                    " used on a board of size " + tiles.getSize());
+        }
+
+        estimate = 0;
+        for (int p = 0; p < index.length; p++) {
+            index[p] = database.indexOf(p, tiles);
+            value[p] = database.lookup(p, index[p]);
+            estimate += value[p];
+        }
+
+        return estimate;
+    }
+
+    @Override
+    /** Moves the tile within the index of its pattern and replaces that pattern's value. */
+    public int update(Tiles tiles, int tile, int from, int to) {
+        int p = database.getPatternOf(tile);
+        if (p < 0) {
+            return estimate;
+        }
+
+        index[p] += (to - from) * database.getWeight(tile);
+        int updated = database.lookup(p, index[p]);
+        estimate += updated - value[p];
+        value[p] = updated;
+        return estimate;
+    }
+}
@@ -0,0 +1,179 @@
+/** A class for a server that lets many players play at once over TCP. Every connection gets a CommandProcessor
+ * with a GameSession of its own, while all of them share one ConfigurationStore, which is never modified after
+ * loading. The protocol is the one of NPuzzle, one command per line, except that commands are not echoed and
+ * every reply, including the greeting, ends with a line holding a single dot so that clients know when to send the
+ * next command. The connection is closed after q or after selecting a board that cannot be solved.
+ *
+ * Each connection runs on a thread of its own. Where the runtime offers virtual threads they are used, so tens of
+ * thousands of idle players cost little memory; otherwise a cached pool of platform threads is used instead. */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PuzzleServer implements Closeable {
+    public static final String END_OF_REPLY = ".";
+    private static final int BACKLOG = 4096;
+
+    private final ConfigurationStore store;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = newThreadPerTaskExecutor();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private Thread acceptor;
+    private volatile boolean closed;
+
+    // Constructor for PuzzleServer
+    public PuzzleServer(ConfigurationStore store, int port) throws IOException {
+        this.store = store;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread for every task if the runtime supports them, and a cached
+     * pool of daemon platform threads otherwise.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // accessor for the port the server listens on
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // accessor for the number of connections open at the moment
+    public int getOpenConnections() {
+        return open.size();
+    }
+
+    // accessor for the number of connections accepted since the server started
+    public long getAcceptedConnections() {
+        return accepted.get();
+    }
+
+    /** Starts accepting connections on a thread of its own. */
+    public synchronized void start() {
+        if (acceptor != null) {
+            throw new IllegalStateException("The server has already been started");
+        }
+        acceptor = new Thread(this::acceptAll, "puzzle-server-acceptor");
+        acceptor.start();
+    }
+
+    // accepts connections until the server is closed
+    private void acceptAll() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                accepted.incrementAndGet();
+                open.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Failed to accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // holds the conversation of one connection
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            s.setTcpNoDelay(true);
+            CommandProcessor processor = new CommandProcessor(store);
+            StringBuilder reply = new StringBuilder(512);
+            reply.append(CommandProcessor.SELECT_PROMPT).append('\n');
+            boolean playing = true;
+            while (true) {
+                reply.append(END_OF_REPLY).append('\n');
+                out.append(reply);
+                out.flush();
+                reply.setLength(0);
+
+                String command = playing ? in.readLine() : null;
+                if (command == null) {
+                    break;
+                }
+                playing = processor.execute(command, reply);
+            }
+        } catch (SocketException e) {
+            // the client went away or the server was closed
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Connection failed: " + e.getMessage());
+            }
+        } finally {
+            open.remove(socket);
+        }
+    }
+
+    @Override
+    /** Stops accepting connections and closes the open ones. */
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : open) {
+            socket.close();
+        }
+        connections.shutdownNow();
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 2) {
+            System.out.println("Usage: java PuzzleServer <path/url to store> <port>");
+            return;
+        }
+        try {
+            Metrics.startFromProperties();
+            ConfigurationStore cs = new ConfigurationStore(args[0]);
+            if (cs.getLoadReport() != null) {
+                for (LoadReport.LineError error : cs.getLoadReport().getErrors()) {
+                    System.out.println(error);
+                }
+            }
+            PuzzleServer server = new PuzzleServer(cs, Integer.parseInt(args[1]));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    // exiting anyway
+                }
+            }));
+            server.start();
+            System.out.println("Serving " + cs.size() + " configurations on port " + server.getPort());
+        } catch (NumberFormatException e) {
+            System.out.println("The port must be a number");
+        } catch (IOException ioe) {
+            System.out.println("Failed to load configuration store or open port");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
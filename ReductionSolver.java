@@ -0,0 +1,558 @@
+/** A class that quickly finds a solution for boards of any size by reducing them to smaller ones, at the price of
+ * solutions that are much longer than optimal ones. The rows are placed one at a time from the top until two rows
+ * remain, then the columns of those two rows from the left until a 2x2 block remains, which is solved last.
+ *
+ * Single tiles are pushed towards their goal one step at a time by walking the empty space around them without
+ * touching the tiles already placed. The last two tiles of a line cannot be placed that way; they are first
+ * brought next to their goal positions and then arranged by a search over the positions of the two tiles and
+ * the empty space inside a small window. Where placed tiles cut the empty space off, a window around the tiles
+ * that grows step by step is searched instead, never one larger than MAX_WINDOW_STATES. The moves are finally
+ * post-optimised: pairs of moves that undo each
+ * other are cancelled and sequences that lead back to an earlier board, recognised by Zobrist hashes, are cut. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class ReductionSolver {
+    private static final Tiles.Direction[] DIRECTIONS = Tiles.Direction.values();
+    private static final int MAX_WINDOW_STATES = 1 << 24;   // the largest search space of a window search
+    private static final Metrics.Histogram SEARCH_TIME = Metrics.histogram("solver.reduction.ms");
+    private static final Metrics.Counter MOVES = Metrics.counter("solver.reduction.moves");
+
+    private Tiles start;
+    private int size;
+    private int cells;
+    private Tiles board;            // the working copy the solver moves around
+    private int[] where;            // the position of every tile value on the working copy
+    private boolean[] locked;       // positions holding placed tiles, which must not move any more
+    private byte[] moves;           // the directions of the moves made so far, by ordinal
+    private int moveCount;
+    private int[] parent;           // scratch space of the searches for the empty space
+    private int[] queue;
+    private int[] visited;          // the number of the last search that reached each position
+    private int search;
+    private int rawLength;
+    private long elapsedTime;
+
+    // Constructor for ReductionSolver
+    public ReductionSolver(Tiles tiles) {
+        this.start = tiles;
+        this.size = tiles.getSize();
+        this.cells = size * size;
+    }
+
+    // accessor for the wall-clock time in milliseconds taken by the last search
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    // accessor for the number of moves of the last solution before it was post-optimised
+    public int getRawLength() {
+        return rawLength;
+    }
+
+    /**
+     * Computes a solution for the board. Applying the returned directions in order with Tiles.move solves the
+     * board.
+     * @return a list of moves that solves the board, usually far from the shortest one
+     * @throws InvalidConfigurationException if the board cannot be solved
+     */
+    public List<Tiles.Direction> solve() throws InvalidConfigurationException {
+        if (!start.isSolvable()) {
+            throw new InvalidConfigurationException("Invalid configuration: the puzzle is not solvable.");
+        }
+
+        long startTime = System.currentTimeMillis();
+        board = start.clone();
+        where = new int[cells];
+        for (int pos = 0; pos < cells; pos++) {
+            where[board.getTileUnchecked(pos)] = pos;
+        }
+        locked = new boolean[cells];
+        moves = new byte[64];
+        moveCount = 0;
+        parent = new int[cells];
+        queue = new int[cells];
+        visited = new int[cells];
+        search = 0;
+
+        if (size >= 2) {
+            for (int row = 0; row < size - 2; row++) {
+                solveRow(row);
+            }
+            for (int col = 0; col < size - 2; col++) {
+                solveColumn(col);
+            }
+            int last = cells - 1;
+            if (!windowSearch(new int[] { last - size, last - size + 1, last },
+                    new int[] { last - size - 1, last - size, last - 1 },
+                    new int[] { last - size - 1, last - size, last - 1, last })) {
+                throw new IllegalStateException("No arrangement of the last 2x2 block reaches the goal");
+            }
+        }
+
+        rawLength = moveCount;
+        List<Tiles.Direction> path = optimise();
+        board = null;
+        where = null;
+        locked = null;
+        moves = null;
+        elapsedTime = System.currentTimeMillis() - startTime;
+        recordMetrics();
+        return path;
+    }
+
+    /** Places the tiles of a row while at least two rows remain below it. */
+    private void solveRow(int row) {
+        int first = row * size;
+        for (int col = 0; col < size - 2; col++) {
+            moveTile(first + col + 1, first + col);
+            locked[first + col] = true;
+        }
+
+        int targetA = first + size - 2;
+        int targetB = first + size - 1;
+        int[] window = { targetA, targetB, targetA + size, targetB + size, targetA + 2 * size, targetB + 2 * size };
+        placePair(targetA + 1, targetB + 1, targetA, targetB, targetB + size, window);
+    }
+
+    /** Places the two tiles of a column of the last two rows while at least two columns remain to its right. */
+    private void solveColumn(int col) {
+        int targetA = (size - 2) * size + col;
+        int targetB = (size - 1) * size + col;
+        int[] window = { targetA, targetA + 1, targetA + 2, targetB, targetB + 1, targetB + 2 };
+        placePair(targetA + 1, targetB + 1, targetA, targetB, targetB + 1, window);
+    }
+
+    /**
+     * Places the last two tiles 'a' and 'b' of a line. 'a' goes to the goal of 'b' and, unless it is already
+     * in 'window', 'b' next to it at 'stage', so that both and the empty space end up in 'window', where they
+     * are arranged by a search. Leaving 'b' where it is avoids trapping the empty space between 'a', 'b' and
+     * the placed tiles.
+     */
+    private void placePair(int a, int b, int targetA, int targetB, int stage, int[] window) {
+        if (where[a] != targetA || where[b] != targetB) {
+            moveTile(a, targetB);
+            if (!contains(window, where[b])) {
+                locked[targetB] = true;
+                moveTile(b, stage);
+                locked[targetB] = false;
+            }
+
+            locked[where[a]] = true;
+            locked[where[b]] = true;
+            int target = searchEmpty(window);
+            locked[where[a]] = false;
+            locked[where[b]] = false;
+            int[] values = { a, b };
+            int[] targets = { targetA, targetB };
+            if (target >= 0) {
+                walkEmpty(target);
+            }
+            if ((target < 0 || !windowSearch(values, targets, window)) && !localSearch(values, targets)) {
+                throw new IllegalStateException("No window around tiles " + a + " and " + b +
+                        " small enough to search reaches their goal");
+            }
+        }
+
+        locked[targetA] = true;
+        locked[targetB] = true;
+    }
+
+    /** Moves a tile to 'target' through unlocked positions, one step at a time. */
+    private void moveTile(int value, int target) {
+        while (where[value] != target) {
+            int tile = where[value];
+            int[] steps = new int[2];
+            int count = 0;
+            for (Tiles.Direction direction : DIRECTIONS) {
+                int neighbour = neighbour(tile, direction);
+                if (neighbour >= 0 && distance(neighbour, target) < distance(tile, target)) {
+                    steps[count++] = neighbour;
+                }
+            }
+
+            // the neighbour towards the target that the empty space reaches with the fewest moves
+            locked[tile] = true;
+            int next = searchEmpty(Arrays.copyOf(steps, count));
+            locked[tile] = false;
+
+            if (next < 0) {
+                // the empty space is cut off from the way forward by placed tiles and the tile itself
+                boolean moved = false;
+                for (int i = 0; i < count && !moved; i++) {
+                    moved = !locked[steps[i]] && localSearch(new int[] { value }, new int[] { steps[i] });
+                }
+                if (!moved && !localSearch(new int[] { value }, new int[] { target })) {
+                    throw new IllegalStateException("No window around tile " + value +
+                            " small enough to search moves it on");
+                }
+                continue;
+            }
+            walkEmpty(next);
+            slideEmptyTo(tile);
+        }
+    }
+
+    /**
+     * Searches the unlocked positions from the empty space until it reaches one of 'targets', recording the
+     * shortest paths in 'parent'.
+     * @return the target closest to the empty space, or -1 if the empty space cannot reach any of them
+     */
+    private int searchEmpty(int[] targets) {
+        search++;
+        int empty = board.getEmptyPosition();
+        parent[empty] = empty;
+        visited[empty] = search;
+        queue[0] = empty;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int pos = queue[head];
+            for (int target : targets) {
+                if (pos == target && !locked[pos]) {
+                    return pos;
+                }
+            }
+            for (Tiles.Direction direction : DIRECTIONS) {
+                int neighbour = neighbour(pos, direction);
+                if (neighbour >= 0 && !locked[neighbour] && visited[neighbour] != search) {
+                    parent[neighbour] = pos;
+                    visited[neighbour] = search;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    // returns the number of moves on the path found by searchEmpty from the empty space to 'pos'
+    private int pathLength(int pos) {
+        int length = 0;
+        while (parent[pos] != pos) {
+            pos = parent[pos];
+            length++;
+        }
+        return length;
+    }
+
+    /** Moves the empty space along the path found by searchEmpty to 'pos'. */
+    private void walkEmpty(int pos) {
+        int length = pathLength(pos);
+        int[] path = new int[length];
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = pos;
+            pos = parent[pos];
+        }
+        for (int p : path) {
+            slideEmptyTo(p);
+        }
+    }
+
+    /**
+     * Finds the shortest sequence of moves inside 'window' that takes the tiles 'values' to 'targets' and applies
+     * it. A state of the search holds the positions of the empty space and of the tracked tiles within the
+     * window; the other tiles of the window are allowed to end up anywhere.
+     * @return false if the window has more than MAX_WINDOW_STATES states or no sequence inside it reaches the goal
+     */
+    private boolean windowSearch(int[] values, int[] targets, int[] window) {
+        int w = window.length;
+        long stateCount = stateCount(w, values.length);
+        if (stateCount > MAX_WINDOW_STATES) {
+            return false;
+        }
+
+        int[] slotOf = new int[cells];
+        Arrays.fill(slotOf, -1);
+        for (int i = 0; i < w; i++) {
+            slotOf[window[i]] = i;
+        }
+        int goal = 0;
+        for (int i = values.length - 1; i >= 0; i--) {
+            goal = goal * w + slotOf[targets[i]];
+        }
+        int startState = slotOf[board.getEmptyPosition()];
+        int factor = w;
+        for (int value : values) {
+            startState += slotOf[where[value]] * factor;
+            factor *= w;
+        }
+
+        int[] previous = new int[(int) stateCount];
+        byte[] direction = new byte[(int) stateCount];
+        Arrays.fill(previous, -1);
+        int[] states = new int[(int) stateCount];
+        previous[startState] = startState;
+        states[0] = startState;
+        int tail = 1;
+        int found = (startState / w) == goal ? startState : -1;
+        int[] slots = new int[values.length];
+        for (int head = 0; head < tail && found < 0; head++) {
+            int state = states[head];
+            int empty = window[state % w];
+            int rest = state / w;
+            for (int i = 0; i < values.length; i++) {
+                slots[i] = rest % w;
+                rest /= w;
+            }
+
+            for (int d = 0; d < DIRECTIONS.length && found < 0; d++) {
+                int tile = neighbour(empty, DIRECTIONS[d]);
+                if (tile < 0 || slotOf[tile] < 0) {
+                    continue;
+                }
+                // the tile at 'tile' slides into the empty space; if it is tracked, its slot changes
+                int tracked = 0;
+                factor = 1;
+                for (int i = 0; i < values.length; i++) {
+                    int slot = slots[i] == slotOf[tile] ? slotOf[empty] : slots[i];
+                    tracked += slot * factor;
+                    factor *= w;
+                }
+                int next = slotOf[tile] + tracked * w;
+                if (previous[next] >= 0) {
+                    continue;
+                }
+                previous[next] = state;
+                direction[next] = (byte) d;
+                states[tail++] = next;
+                if (tracked == goal) {
+                    found = next;
+                }
+            }
+        }
+        if (found < 0) {
+            return false;
+        }
+
+        int length = 0;
+        for (int s = found; s != startState; s = previous[s]) {
+            length++;
+        }
+        byte[] path = new byte[length];
+        for (int s = found, i = length - 1; s != startState; s = previous[s], i--) {
+            path[i] = direction[s];
+        }
+        for (byte d : path) {
+            slideEmptyTo(neighbour(board.getEmptyPosition(), DIRECTIONS[d]));
+        }
+        return true;
+    }
+
+    // returns the number of states of a window search tracking 'tracked' tiles in a window of 'w' positions
+    private static long stateCount(int w, int tracked) {
+        long count = w;
+        for (int i = 0; i < tracked && count <= MAX_WINDOW_STATES; i++) {
+            count *= w;
+        }
+        return count;
+    }
+
+    /**
+     * Takes the tiles 'values' to 'targets' when the empty space cannot get round them. The empty space is first
+     * brought as close to the first tile as it can get, then the unlocked positions around the tiles, their
+     * targets and the empty space are searched, widening the window by one row and column on every side until
+     * the search succeeds. The window stops growing once its search would exceed MAX_WINDOW_STATES states, so the
+     * work stays bounded on boards of any size.
+     * @return false if no window that can be searched leads to the goal
+     */
+    private boolean localSearch(int[] values, int[] targets) {
+        for (int value : values) {
+            locked[where[value]] = true;
+        }
+        searchEmpty(new int[0]);
+        int closest = board.getEmptyPosition();
+        for (int pos = 0; pos < cells; pos++) {
+            if (visited[pos] == search && distance(pos, where[values[0]]) < distance(closest, where[values[0]])) {
+                closest = pos;
+            }
+        }
+        walkEmpty(closest);
+        for (int value : values) {
+            locked[where[value]] = false;
+        }
+
+        int[] window = new int[0];
+        for (int margin = 1; ; margin++) {
+            int[] wider = unlockedAround(values, targets, margin);
+            if (wider.length == window.length || stateCount(wider.length, values.length) > MAX_WINDOW_STATES) {
+                return false;
+            }
+            window = wider;
+            if (windowSearch(values, targets, window)) {
+                return true;
+            }
+        }
+    }
+
+    // returns the unlocked positions at most 'margin' rows and columns away from the box holding the tiles
+    // 'values', the 'targets' and the empty space
+    private int[] unlockedAround(int[] values, int[] targets, int margin) {
+        int empty = board.getEmptyPosition();
+        int top = empty / size;
+        int bottom = top;
+        int left = empty % size;
+        int right = left;
+        int[] positions = new int[values.length + targets.length];
+        for (int i = 0; i < values.length; i++) {
+            positions[i] = where[values[i]];
+        }
+        System.arraycopy(targets, 0, positions, values.length, targets.length);
+        for (int pos : positions) {
+            top = Math.min(top, pos / size);
+            bottom = Math.max(bottom, pos / size);
+            left = Math.min(left, pos % size);
+            right = Math.max(right, pos % size);
+        }
+        top = Math.max(0, top - margin);
+        bottom = Math.min(size - 1, bottom + margin);
+        left = Math.max(0, left - margin);
+        right = Math.min(size - 1, right + margin);
+
+        int[] window = new int[(bottom - top + 1) * (right - left + 1)];
+        int count = 0;
+        for (int row = top; row <= bottom; row++) {
+            for (int col = left; col <= right; col++) {
+                if (!locked[row * size + col]) {
+                    window[count++] = row * size + col;
+                }
+            }
+        }
+        return Arrays.copyOf(window, count);
+    }
+
+    // checks if 'pos' is one of the positions of 'window'
+    private static boolean contains(int[] window, int pos) {
+        for (int p : window) {
+            if (p == pos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Slides the tile at 'pos', which must be next to the empty space, into the empty space and records the move. */
+    private void slideEmptyTo(int pos) {
+        int empty = board.getEmptyPosition();
+        Tiles.Direction direction;
+        if (pos == empty + size) {
+            direction = Tiles.Direction.UP;
+        } else if (pos == empty - 1) {
+            direction = Tiles.Direction.RIGHT;
+        } else if (pos == empty - size) {
+            direction = Tiles.Direction.DOWN;
+        } else {
+            direction = Tiles.Direction.LEFT;
+        }
+
+        int value = board.getTileUnchecked(pos);
+        board.makeMove(direction);
+        where[value] = empty;
+        where[Tiles.EMPTY] = pos;
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moveCount * 2);
+        }
+        moves[moveCount++] = (byte) direction.ordinal();
+    }
+
+    /**
+     * Returns the position of the tile that a move in 'direction' slides into an empty space at 'empty',
+     * or -1 if there is none. Also used to find the neighbours of any position.
+     */
+    private int neighbour(int pos, Tiles.Direction direction) {
+        int col = pos % size;
+        int row = pos / size;
+        switch (direction) {
+            case UP:
+                return row + 1 < size ? pos + size : -1;
+            case RIGHT:
+                return col > 0 ? pos - 1 : -1;
+            case DOWN:
+                return row > 0 ? pos - size : -1;
+            default:
+                return col + 1 < size ? pos + 1 : -1;
+        }
+    }
+
+    // returns the Manhattan distance between two positions
+    private int distance(int a, int b) {
+        return Math.abs(a % size - b % size) + Math.abs(a / size - b / size);
+    }
+
+    /**
+     * Shortens the recorded moves: moves undone by the next one are dropped, and whenever a board repeats an
+     * earlier one, the moves between the two are cut. Boards are recognised by their Zobrist hash, the exclusive
+     * or of a random number for every tile value at its position, which a move updates in constant time. The
+     * numbers are computed from the position and value rather than kept in a table, which would take cells * cells
+     * longs, 800 MB for a 100x100 board.
+     */
+    private List<Tiles.Direction> optimise() {
+        byte[] kept = new byte[moveCount];
+        int count = 0;
+        for (int i = 0; i < moveCount; i++) {
+            if (count > 0 && DIRECTIONS[kept[count - 1]].opposite().ordinal() == moves[i]) {
+                count--;
+            } else {
+                kept[count++] = moves[i];
+            }
+        }
+
+        int[] tiles = new int[cells];
+        long hash = 0;
+        for (int pos = 0; pos < cells; pos++) {
+            tiles[pos] = start.getTileUnchecked(pos);
+            hash ^= zobrist(pos, tiles[pos]);
+        }
+        int empty = start.getEmptyPosition();
+
+        // the board after the first k moves of the result has hash hashes[k]; 'seen' maps hashes back to k
+        HashMap<Long, Integer> seen = new HashMap<>();
+        long[] hashes = new long[count + 1];
+        byte[] result = new byte[count];
+        int length = 0;
+        hashes[0] = hash;
+        seen.put(hash, 0);
+        for (int i = 0; i < count; i++) {
+            int tile = neighbour(empty, DIRECTIONS[kept[i]]);
+            int value = tiles[tile];
+            hash ^= zobrist(tile, value) ^ zobrist(tile, Tiles.EMPTY)
+                    ^ zobrist(empty, Tiles.EMPTY) ^ zobrist(empty, value);
+            tiles[empty] = value;
+            tiles[tile] = Tiles.EMPTY;
+            empty = tile;
+
+            Integer earlier = seen.get(hash);
+            if (earlier != null) {
+                for (int k = earlier + 1; k <= length; k++) {
+                    seen.remove(hashes[k]);
+                }
+                length = earlier;
+            } else {
+                result[length++] = kept[i];
+                hashes[length] = hash;
+                seen.put(hash, length);
+            }
+        }
+
+        List<Tiles.Direction> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(DIRECTIONS[result[i]]);
+        }
+        return path;
+    }
+
+    // returns the random number of tile 'value' at 'pos' for the Zobrist hash of a board
+    private long zobrist(int pos, int value) {
+        return BoardGenerator.mix((long) pos * cells + value + 1);
+    }
+
+    // adds the last search to the metrics
+    private void recordMetrics() {
+        if (Metrics.ENABLED) {
+            SEARCH_TIME.record(elapsedTime);
+            MOVES.add(rawLength);
+        }
+    }
+}
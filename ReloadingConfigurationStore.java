@@ -0,0 +1,458 @@
+/** A class that keeps a ConfigurationStore up to date with the file it was read from. A WatchService tells a
+ * thread of its own when the file changes, and the file is then read again, but only the lines from the first part
+ * that differs from the last reading onwards are parsed, so appending boards to a large store costs no more than
+ * parsing the new lines. Every reading publishes a new Snapshot, an immutable ConfigurationStore with what is needed
+ * to compare the next reading against, by replacing a single reference. Readers never wait: a reader that got a
+ * snapshot keeps using it, and its lists never change, while later readers get the new one.
+ *
+ * To find what changed, a text store is divided into blocks of about BLOCK_BYTES that end on a line, and the CRC of
+ * every block is kept with the number of lines and configurations up to its end. The file is read through a
+ * FileChannel from the first block that may have changed, so the store is never copied whole onto the heap. When
+ * the file has only grown, just its last complete block is compared; an edit elsewhere that keeps the length of
+ * the lines is then noticed at the next reading that does not only grow the file. The short block at the end of the
+ * file, and with it a line without a newline that may be still being written, is always read again, so appends
+ * extend it into full blocks instead of adding a block each. Binary stores are read completely
+ * whenever they change. Events that follow each other within QUIET_MILLIS lead to a single reading, so a file
+ * written in several pieces is not published half written. */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+public class ReloadingConfigurationStore implements Closeable {
+    public static final int BLOCK_BYTES = 1 << 16;
+    public static final long QUIET_MILLIS = 20;    // how long the file must be left alone before it is read
+    private static final int REFERENCE_BYTES = 4;   // the size of a reference with compressed references
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final Metrics.Histogram RELOAD_TIME = Metrics.histogram("store.reload.ns");
+    private static final Metrics.Counter RELOADS = Metrics.counter("store.reloads");
+
+    private final Path file;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private WatchService watcher;
+    private Thread watchThread;
+    private volatile boolean closed;
+    private volatile LoadReport lastReport;     // the lines parsed by the last reading, null after a binary store
+    private volatile long lastReloadTime;       // in nanoseconds
+    private volatile long lastParsedBytes;
+    private volatile long reloadCount;
+
+    /** An immutable view of the store as it was at one reading of the file. */
+    public static class Snapshot {
+        private final ConfigurationStore store;
+        private final List<Configuration> configurations;   // in the order of the lines
+        private final long generation;
+        private final long length;          // the length of the file when it was read
+        private final long[] blockEnds;     // the offset just after each block
+        private final long[] blockCrcs;
+        private final long[] blockLines;    // the number of lines up to the end of each block
+        private final int[] blockConfigurations;    // the number of configurations up to the end of each block
+        private final boolean openEnd;      // whether the last line had no newline
+
+        Snapshot(List<Configuration> configurations, long generation, long length, long[] blockEnds,
+                 long[] blockCrcs, long[] blockLines, int[] blockConfigurations, boolean openEnd) {
+            this.configurations = Collections.unmodifiableList(configurations);
+            this.store = new ConfigurationStore(configurations);
+            this.generation = generation;
+            this.length = length;
+            this.blockEnds = blockEnds;
+            this.blockCrcs = blockCrcs;
+            this.blockLines = blockLines;
+            this.blockConfigurations = blockConfigurations;
+            this.openEnd = openEnd;
+        }
+
+        // accessor for the store of this snapshot
+        public ConfigurationStore getStore() {
+            return store;
+        }
+
+        // accessor for the configurations in the order of the lines of the file
+        public List<Configuration> getConfigurations() {
+            return configurations;
+        }
+
+        // accessor for the number of readings of the file before this one
+        public long getGeneration() {
+            return generation;
+        }
+
+        // accessor for the length of the file when this snapshot was read from it
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Returns an estimate of the bytes this snapshot does not share with the one before it: the arrays of
+         * references of its two lists and the block table. The configurations themselves are shared by all
+         * snapshots that contain them.
+         */
+        public long getMemoryOverhead() {
+            return 2 * (ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * configurations.size()) +
+                    4 * ARRAY_HEADER_BYTES + (long) blockEnds.length * (3 * Long.BYTES + Integer.BYTES);
+        }
+    }
+
+    /**
+     * Reads the store in 'filename'; start() keeps it up to date from then on.
+     * @throws IOException if the file cannot be read
+     */
+    public ReloadingConfigurationStore(String filename) throws IOException {
+        this.file = Paths.get(filename).toAbsolutePath();
+        current.set(new Snapshot(new ArrayList<>(), -1, 0, new long[0], new long[0], new long[0], new int[0], false));
+        reload();
+    }
+
+    // accessor for the snapshot of the last reading
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    // accessor for the store of the last reading
+    public ConfigurationStore getStore() {
+        return current.get().getStore();
+    }
+
+    /** Returns all configurations of the last reading sorted by size; the list never changes. */
+    public List<Configuration> getConfigurationsSizeSorted() {
+        return current.get().getStore().getConfigurationsSizeSorted();
+    }
+
+    // accessor for the lines parsed by the last reading, null if the store is binary
+    public LoadReport getLastReport() {
+        return lastReport;
+    }
+
+    // accessor for the time the last reading took, from noticing the change to publishing the snapshot, in nanoseconds
+    public long getLastReloadTime() {
+        return lastReloadTime;
+    }
+
+    // accessor for the number of bytes parsed by the last reading
+    public long getLastParsedBytes() {
+        return lastParsedBytes;
+    }
+
+    // accessor for the number of readings that published a new snapshot, the first one included
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Reads the file again and publishes a new snapshot if it changed.
+     * @return whether a new snapshot was published
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized boolean reload() throws IOException {
+        long start = System.nanoTime();
+        Snapshot old = current.get();
+        Snapshot next;
+        if (BinaryConfigurationFormat.isBinary(file.toString())) {
+            List<Configuration> read = BinaryConfigurationFormat.read(file.toString());
+            next = new Snapshot(read, old.generation + 1, Files.size(file), new long[0], new long[0], new long[0],
+                    new int[0], false);
+            lastReport = null;
+            lastParsedBytes = next.length;
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                next = readText(old, channel);
+            }
+            if (next == null) {
+                return false;
+            }
+        }
+
+        current.set(next);
+        lastReloadTime = System.nanoTime() - start;
+        reloadCount++;
+        if (Metrics.ENABLED) {
+            RELOADS.increment();
+            RELOAD_TIME.record(lastReloadTime);
+        }
+        return true;
+    }
+
+    /**
+     * Parses the text of the file from the first block that changed, or returns null if nothing changed. Only
+     * blocks of at least BLOCK_BYTES count as complete; the last block of the old reading is read again unless it
+     * is that long. When the file has grown and its last complete block is unchanged, the blocks before it are
+     * taken as they were without being read, so an append costs the reading of one block and the new bytes.
+     * Otherwise the blocks are compared from the start until one differs.
+     */
+    private Snapshot readText(Snapshot old, FileChannel channel) throws IOException {
+        long length = channel.size();
+        int complete = old.blockEnds.length;
+        if (complete > 0 && (old.openEnd || old.blockEnds[complete - 1] -
+                (complete == 1 ? 0 : old.blockEnds[complete - 2]) < BLOCK_BYTES)) {
+            complete--;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_BYTES);
+        CRC32 crc = new CRC32();
+        int kept = 0;
+        if (length > old.length && (complete == 0 || blockMatches(channel, old, complete - 1, buffer, crc))) {
+            kept = complete;
+        } else {
+            while (kept < complete && old.blockEnds[kept] <= length && blockMatches(channel, old, kept, buffer, crc)) {
+                kept++;
+            }
+            if (length == old.length && kept == complete && old.generation >= 0 &&
+                    (complete == old.blockEnds.length || blockMatches(channel, old, complete, buffer, crc))) {
+                return null;
+            }
+        }
+        long from = kept == 0 ? 0 : old.blockEnds[kept - 1];
+        long linesBefore = kept == 0 ? 0 : old.blockLines[kept - 1];
+        int configurationsBefore = kept == 0 ? 0 : old.blockConfigurations[kept - 1];
+
+        // split what follows into blocks that end on a line, counting their lines the way BufferedReader does
+        int capacity = kept + 16;
+        long[] ends = Arrays.copyOf(old.blockEnds, capacity);
+        long[] crcs = Arrays.copyOf(old.blockCrcs, capacity);
+        long[] lines = Arrays.copyOf(old.blockLines, capacity);
+        int blocks = kept;
+        long blockStart = from;
+        long lineCount = linesBefore;
+        byte last = '\n';
+        crc.reset();
+        for (long position = from; position < length; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - position));
+            int n = readFully(channel, buffer, position);
+            byte[] bytes = buffer.array();
+            int segment = 0;
+            for (int i = 0; i < n; i++) {
+                byte b = bytes[i];
+                if (b == '\n' || last == '\r') {
+                    lineCount++;    // a line ends with a newline, or with a carriage return not followed by one
+                }
+                last = b;
+                if (b == '\n' && position + i + 1 - blockStart >= BLOCK_BYTES) {
+                    crc.update(bytes, segment, i + 1 - segment);
+                    segment = i + 1;
+                    if (blocks == ends.length) {
+                        ends = Arrays.copyOf(ends, blocks * 2);
+                        crcs = Arrays.copyOf(crcs, blocks * 2);
+                        lines = Arrays.copyOf(lines, blocks * 2);
+                    }
+                    blockStart = position + i + 1;
+                    ends[blocks] = blockStart;
+                    crcs[blocks] = crc.getValue();
+                    lines[blocks++] = lineCount;
+                    crc.reset();
+                }
+            }
+            crc.update(bytes, segment, n - segment);
+            position += n;
+        }
+        if (blockStart < length) {
+            if (blocks == ends.length) {
+                ends = Arrays.copyOf(ends, blocks + 1);
+                crcs = Arrays.copyOf(crcs, blocks + 1);
+                lines = Arrays.copyOf(lines, blocks + 1);
+            }
+            ends[blocks] = length;
+            crcs[blocks] = crc.getValue();
+            lines[blocks++] = lineCount + (last != '\n' ? 1 : 0);
+        }
+        ends = Arrays.copyOf(ends, blocks);
+        crcs = Arrays.copyOf(crcs, blocks);
+        lines = Arrays.copyOf(lines, blocks);
+
+        LoadReport report = new ParallelConfigurationLoader().load(
+                new InputStreamReader(new RegionInputStream(channel, from, length), StandardCharsets.UTF_8),
+                linesBefore + 1);
+        if (report.getLineCount() != (blocks == 0 ? 0 : lines[blocks - 1]) - linesBefore) {
+            throw new IOException("The file changed while it was being read");
+        }
+
+        int[] counts = Arrays.copyOf(old.blockConfigurations, blocks);
+        int error = 0;
+        for (int b = kept; b < blocks; b++) {
+            while (error < report.getErrors().size() && report.getErrors().get(error).getLine() <= lines[b]) {
+                error++;
+            }
+            counts[b] = (int) (configurationsBefore + lines[b] - linesBefore - error);
+        }
+
+        List<Configuration> configurations = new ArrayList<>(configurationsBefore + report.getConfigurations().size());
+        configurations.addAll(old.configurations.subList(0, configurationsBefore));
+        configurations.addAll(report.getConfigurations());
+        lastReport = report;
+        lastParsedBytes = length - from;
+        return new Snapshot(configurations, old.generation + 1, length, ends, crcs, lines, counts, last != '\n');
+    }
+
+    // checks whether a block of the old snapshot still has the same bytes
+    private static boolean blockMatches(FileChannel channel, Snapshot old, int block, ByteBuffer buffer, CRC32 crc)
+            throws IOException {
+        long position = block == 0 ? 0 : old.blockEnds[block - 1];
+        crc.reset();
+        while (position < old.blockEnds[block]) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), old.blockEnds[block] - position));
+            int n = readFully(channel, buffer, position);
+            if (n == 0) {
+                return false;
+            }
+            crc.update(buffer.array(), 0, n);
+            position += n;
+        }
+        return crc.getValue() == old.blockCrcs[block];
+    }
+
+    // reads from 'position' until 'buffer' is full or the file ends, returning the number of bytes read
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    // an input stream over the bytes of a file from one offset to another
+    private static class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        RegionInputStream(FileChannel channel, long from, long end) {
+            this.channel = channel;
+            this.position = from;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if (n < 0) {
+                return -1;
+            }
+            position += n;
+            return n;
+        }
+    }
+
+    /**
+     * Starts watching the directory of the file on a daemon thread, reading the file again whenever it is
+     * created or modified.
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watchThread != null) {
+            throw new IllegalStateException("The store is already being watched");
+        }
+        watcher = file.getFileSystem().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchThread = new Thread(this::watch, "store-watcher-" + file.getFileName());
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    // reads the file again once the events about it stop for QUIET_MILLIS, until closed
+    private void watch() {
+        while (!closed) {
+            boolean changed = false;
+            try {
+                WatchKey key = watcher.take();
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                                file.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                    key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            if (changed) {
+                try {
+                    reload();
+                } catch (IOException e) {
+                    // the file may be being replaced; the next event reads it again
+                    if (!closed) {
+                        System.err.println("Failed to reload " + file + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    /** Stops watching the file; the last snapshot stays available. */
+    public void close() throws IOException {
+        closed = true;
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 1) {
+            System.out.println("Usage: java ReloadingConfigurationStore <path to store>");
+            System.out.println("Watches a store and reports every reading of it until interrupted.");
+            return;
+        }
+        try {
+            Metrics.startFromProperties();
+            ReloadingConfigurationStore store = new ReloadingConfigurationStore(args[0]);
+            store.start();
+            long generation = -1;
+            while (true) {
+                Snapshot snapshot = store.getSnapshot();
+                if (snapshot.getGeneration() != generation) {
+                    generation = snapshot.getGeneration();
+                    System.out.println("Generation " + generation + ": " + snapshot.getStore().size() +
+                            " configurations; parsed " + store.getLastParsedBytes() + " bytes in " +
+                            store.getLastReloadTime() / 1000 + " us; snapshot overhead " +
+                            snapshot.getMemoryOverhead() + " bytes");
+                    if (store.getLastReport() != null) {
+                        for (LoadReport.LineError error : store.getLastReport().getErrors()) {
+                            System.out.println(error);
+                        }
+                    }
+                }
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ioe) {
+            System.out.println("Failed to read or watch configuration store");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
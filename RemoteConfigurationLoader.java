@@ -0,0 +1,384 @@
+/** A class that loads text stores over HTTP. Requests have a connect timeout and a timeout for the response headers,
+ * and a body that sends no bytes for as long as the response timeout is abandoned. Requests ask for gzip
+ * compression and are conditional on the ETag and Last-Modified of the copy kept in a cache directory, so that
+ * restarts only download stores that have changed. The body is parsed by a ParallelConfigurationLoader as it
+ * arrives while it is written to the cache, so parsing does not wait for the download to finish. Reading and
+ * parsing run on threads of the loader, never on those of the HttpClient. A store that cannot be fetched, because
+ * the server cannot be reached or answers with an error status, is read from the cache if a copy is there.
+ *
+ * Each URL has two files in the cache directory, named after the SHA-256 of the URL: the decompressed store
+ * ('.store') and the validators sent back with the next request ('.meta'). */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+public class RemoteConfigurationLoader {
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final File cacheDirectory;
+    private final Duration responseTimeout;
+    private final ExecutorService parsers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "store-parser");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "store-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The outcome of loading a store from a URL. */
+    public static class Result {
+        private final LoadReport report;
+        private final int status;
+        private final boolean fromCache;
+
+        Result(LoadReport report, int status, boolean fromCache) {
+            this.report = report;
+            this.status = status;
+            this.fromCache = fromCache;
+        }
+
+        // accessor for the configurations read and the lines that could not be read
+        public LoadReport getReport() {
+            return report;
+        }
+
+        // accessor for the HTTP status of the response, 0 if the server could not be reached
+        public int getStatus() {
+            return status;
+        }
+
+        // accessor for whether the store was read from the cache rather than downloaded
+        public boolean isFromCache() {
+            return fromCache;
+        }
+    }
+
+    // Constructor for RemoteConfigurationLoader
+    public RemoteConfigurationLoader() {
+        this(new File(System.getProperty("npuzzle.cache.dir",
+                        new File(System.getProperty("java.io.tmpdir"), "npuzzle-cache").getPath())),
+                DEFAULT_CONNECT_TIMEOUT, DEFAULT_RESPONSE_TIMEOUT);
+    }
+
+    // Constructor for RemoteConfigurationLoader
+    public RemoteConfigurationLoader(File cacheDirectory, Duration connectTimeout, Duration responseTimeout) {
+        this.cacheDirectory = cacheDirectory;
+        this.responseTimeout = responseTimeout;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Loads the store at 'url', waiting for it.
+     * @throws IOException if the store can neither be fetched nor read from the cache
+     */
+    public Result load(String url) throws IOException {
+        try {
+            return loadAsync(url).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Loading " + url + " was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to load " + url + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /** Starts loading the store at 'url' and returns at once. */
+    public CompletableFuture<Result> loadAsync(String url) {
+        File store = cacheFile(url, ".store");
+        File meta = cacheFile(url, ".meta");
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(responseTimeout)
+                .header("Accept-Encoding", "gzip");
+        Properties validators = readValidators(meta);
+        if (store.exists()) {
+            if (validators.getProperty("etag") != null) {
+                request.header("If-None-Match", validators.getProperty("etag"));
+            }
+            if (validators.getProperty("last-modified") != null) {
+                request.header("If-Modified-Since", validators.getProperty("last-modified"));
+            }
+        }
+
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream())
+                .handleAsync((response, failure) -> {
+                    try {
+                        if (failure != null) {
+                            if (!store.exists()) {
+                                throw new IOException("Failed to fetch " + url + ": " + failure.getMessage(), failure);
+                            }
+                            return new Result(parseCached(store), 0, true);
+                        }
+                        return receive(url, response, store, meta);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, parsers);
+    }
+
+    // parses the response, or the cached store if it has not changed
+    private Result receive(String url, HttpResponse<InputStream> response, File store, File meta) throws IOException {
+        int status = response.statusCode();
+        if (status == 304 && store.exists()) {
+            response.body().close();
+            return new Result(parseCached(store), status, true);
+        }
+        if (status != 200) {
+            response.body().close();
+            if (store.exists()) {
+                return new Result(parseCached(store), status, true);
+            }
+            throw new IOException("Failed to fetch " + url + ": HTTP status " + status);
+        }
+
+        InputStream body = new DeadlineInputStream(response.body(), url);
+        if (response.headers().firstValue("Content-Encoding").orElse("").equalsIgnoreCase("gzip")) {
+            body = new GZIPInputStream(body, 1 << 16);
+        }
+
+        cacheDirectory.mkdirs();
+        File partial = new File(store.getPath() + ".tmp");
+        LoadReport report;
+        try (CachingInputStream in = new CachingInputStream(body, new FileOutputStream(partial));
+             Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            report = new ParallelConfigurationLoader().load(r);
+        } catch (IOException e) {
+            partial.delete();
+            throw e;
+        }
+
+        // only a complete download replaces the cached copy, in a single step so that a crash keeps the old one
+        try {
+            Files.move(partial.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            partial.delete();
+            return new Result(report, status, false);
+        }
+        Properties validators = new Properties();
+        response.headers().firstValue("ETag").ifPresent(etag -> validators.setProperty("etag", etag));
+        response.headers().firstValue("Last-Modified").ifPresent(date -> validators.setProperty("last-modified", date));
+        try (OutputStream out = new FileOutputStream(meta)) {
+            validators.store(out, url);
+        }
+        return new Result(report, status, false);
+    }
+
+    // parses the cached copy of a store
+    private static LoadReport parseCached(File store) throws IOException {
+        try (Reader r = new InputStreamReader(new FileInputStream(store), StandardCharsets.UTF_8)) {
+            return new ParallelConfigurationLoader().load(r);
+        }
+    }
+
+    // reads the validators of the cached copy, which are empty if there is none
+    private static Properties readValidators(File meta) {
+        Properties validators = new Properties();
+        if (meta.exists()) {
+            try (Reader r = new FileReader(meta, StandardCharsets.ISO_8859_1)) {
+                validators.load(r);
+            } catch (IOException e) {
+                // a damaged file only costs a full download
+            }
+        }
+        return validators;
+    }
+
+    // returns the cache file of the given kind for a URL
+    private File cacheFile(String url, String suffix) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return new File(cacheDirectory, name.append(suffix).toString());
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // an input stream that writes everything read from it to another stream
+    private static class CachingInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        CachingInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                copy.write(buffer, offset, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("Skipping would leave a gap in the cached copy");
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                copy.close();
+            }
+        }
+    }
+
+    // an input stream that is closed when no bytes arrive for the response timeout, since the timeout of the
+    // request only covers the wait for the headers
+    private class DeadlineInputStream extends FilterInputStream {
+        private final String url;
+        private final long timeout;             // in nanoseconds
+        private volatile long lastRead = System.nanoTime();
+        private volatile boolean expired;
+        private boolean closed;
+        private ScheduledFuture<?> check;
+
+        DeadlineInputStream(InputStream in, String url) {
+            super(in);
+            this.url = url;
+            this.timeout = responseTimeout.toNanos();
+            schedule(timeout);
+        }
+
+        // checks again after 'delay' nanoseconds whether bytes have arrived
+        private synchronized void schedule(long delay) {
+            if (!closed) {
+                check = timers.schedule(this::expireIfIdle, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // closes the body if nothing was read for the timeout, which wakes up a read waiting for bytes
+        private void expireIfIdle() {
+            long idle = System.nanoTime() - lastRead;
+            if (idle < timeout) {
+                schedule(timeout - idle);
+                return;
+            }
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException e) {
+                // the waiting read fails either way
+            }
+        }
+
+        // returns the result of a read, or the timeout if the body was closed because it stalled
+        private int received(int n) throws IOException {
+            if (expired) {
+                throw timeout();
+            }
+            lastRead = System.nanoTime();
+            return n;
+        }
+
+        private IOException timeout() {
+            return new HttpTimeoutException("No data from " + url + " for " + responseTimeout.toMillis() + " ms");
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return received(super.read());
+            } catch (IOException e) {
+                throw expired ? timeout() : e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return received(super.read(buffer, offset, length));
+            } catch (IOException e) {
+                throw expired ? timeout() : e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (this) {
+                closed = true;
+                if (check != null) {
+                    check.cancel(false);
+                }
+            }
+            super.close();
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length != 1) {
+            System.out.println("Usage: java RemoteConfigurationLoader <url of store>");
+            System.out.println("Loads a store over HTTP into the cache (-Dnpuzzle.cache.dir) and reports the result.");
+            return;
+        }
+        try {
+            Result result = new RemoteConfigurationLoader().load(args[0]);
+            LoadReport report = result.getReport();
+            System.out.println("Loaded " + report.getConfigurations().size() + " of " + report.getLineCount() +
+                    " lines in " + report.getElapsedTime() + " ms (status " + result.getStatus() +
+                    (result.isFromCache() ? ", from cache" : "") + ")");
+        } catch (IOException ioe) {
+            System.out.println(ioe.getMessage());
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/** A class that replays scripted games against many GameSessions at once and checks the boards they end with, so
+ * that the cost of commands can be measured without a terminal. A script uses the commands of NPuzzle, any number
+ * per line, together with checks of the board:
+ *
+ *     # a comment
+ *     l
+ *     c 12
+ *     UP UP LEFT b f RIGHT
+ *     expect moves 3
+ *     expect solved
+ *     expect board 1 2 3 : 4 5 6 : 7 8 0
+ *     q
+ *
+ * The commands are carried out by a CommandProcessor, as for NPuzzle and PuzzleServer, and its replies are thrown
+ * away, so a script behaves as the same input typed into a real session: solving the board ends the game, and q
+ * or selecting a board that cannot be solved ends the session, after which the rest of the script is not run.
+ * Checks look at the board of the last game, which after a solving move is the solved board.
+ * Scripts are compiled once into an array of commands. Every session runs one script on a pool of threads with a
+ * session of its own, and the time of every command is recorded in a histogram in nanoseconds. */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ReplayEngine {
+    // the operations of compiled commands
+    private static final int COMMAND = 0;
+    private static final int EXPECT_SOLVED = 1;
+    private static final int EXPECT_MOVES = 2;
+    private static final int EXPECT_BOARD = 3;
+
+    private final ConfigurationStore store;
+    private final int parallelism;
+
+    // a single compiled command of a script
+    private static class Command {
+        private final int operation;
+        private final String text;      // the command for the CommandProcessor
+        private final int argument;     // the expected number of moves
+        private final int[] board;      // the expected tiles row by row
+        private final int line;         // the line of the script the command is on
+
+        Command(int operation, String text, int argument, int[] board, int line) {
+            this.operation = operation;
+            this.text = text;
+            this.argument = argument;
+            this.board = board;
+            this.line = line;
+        }
+    }
+
+    // an Appendable that throws away the replies of the CommandProcessor
+    private static class Discard implements Appendable {
+        @Override
+        public Appendable append(CharSequence text) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return this;
+        }
+    }
+
+    /** A compiled script. */
+    public static class Script {
+        private final String name;
+        private final Command[] commands;
+
+        private Script(String name, Command[] commands) {
+            this.name = name;
+            this.commands = commands;
+        }
+
+        // accessor for the name of the script, usually its file
+        public String getName() {
+            return name;
+        }
+
+        // accessor for the number of commands of the script, checks included
+        public int length() {
+            return commands.length;
+        }
+
+        /**
+         * Compiles a script read from 'r'.
+         * @throws IOException if 'r' cannot be read or a line holds an unknown command
+         */
+        public static Script parse(String name, Reader r) throws IOException {
+            BufferedReader in = new BufferedReader(r);
+            List<Command> commands = new ArrayList<>();
+            String text;
+            int line = 0;
+            while ((text = in.readLine()) != null) {
+                line++;
+                String[] tokens = text.trim().split("\\s+");
+                if (tokens[0].isEmpty() || tokens[0].startsWith("#")) {
+                    continue;
+                }
+                try {
+                    parseLine(tokens, line, commands);
+                } catch (IOException e) {
+                    throw new IOException(name + ": " + e.getMessage());
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException(name + ": line " + line + ": incomplete or malformed command: " + text);
+                }
+            }
+            return new Script(name, commands.toArray(new Command[0]));
+        }
+
+        /**
+         * Compiles a script file.
+         * @throws IOException if the file cannot be read or a line holds an unknown command
+         */
+        public static Script parse(String filename) throws IOException {
+            try (Reader r = new FileReader(filename)) {
+                return parse(filename, r);
+            }
+        }
+
+        // compiles the commands of one line
+        private static void parseLine(String[] tokens, int line, List<Command> commands) throws IOException {
+            if (tokens[0].equals("expect")) {
+                switch (tokens[1]) {
+                    case "solved":
+                        commands.add(new Command(EXPECT_SOLVED, null, 0, null, line));
+                        return;
+                    case "moves":
+                        commands.add(new Command(EXPECT_MOVES, null, Integer.parseInt(tokens[2]), null, line));
+                        return;
+                    case "board":
+                        int[] board = Arrays.stream(tokens, 2, tokens.length)
+                                .filter(token -> !token.equals(":"))
+                                .mapToInt(Integer::parseInt)
+                                .toArray();
+                        commands.add(new Command(EXPECT_BOARD, null, 0, board, line));
+                        return;
+                    default:
+                        throw new IOException("line " + line + ": unknown check " + tokens[1]);
+                }
+            }
+
+            for (int t = 0; t < tokens.length; t++) {
+                switch (tokens[t]) {
+                    case "UP":
+                    case "RIGHT":
+                    case "DOWN":
+                    case "LEFT":
+                    case "b":
+                    case "f":
+                    case "l":
+                    case "q":
+                        commands.add(new Command(COMMAND, tokens[t], 0, null, line));
+                        break;
+                    case "c":
+                        commands.add(new Command(COMMAND, "c " + Integer.parseInt(tokens[++t]), 0, null, line));
+                        break;
+                    default:
+                        throw new IOException("line " + line + ": unknown command " + tokens[t]);
+                }
+            }
+        }
+    }
+
+    /** The outcome of replaying scripts. */
+    public static class Summary {
+        private int sessions;
+        private int passed;
+        private long commands;
+        private long moves;
+        private long elapsedTime;
+        private List<String> failures = new ArrayList<>();
+        private Metrics.Histogram latency = new Metrics.Histogram();
+
+        // accessor for the number of sessions run
+        public int getSessionCount() {
+            return sessions;
+        }
+
+        // accessor for the number of sessions whose checks all held
+        public int getPassedCount() {
+            return passed;
+        }
+
+        // accessor for the number of commands executed, checks included
+        public long getCommandCount() {
+            return commands;
+        }
+
+        // accessor for the number of commands that changed a board, going back and forward included
+        public long getMoveCount() {
+            return moves;
+        }
+
+        // accessor for the number of milliseconds the replay took
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        // accessor for the first failure of every failed session
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        // accessor for the time of every command in nanoseconds
+        public Metrics.Histogram getLatency() {
+            return latency;
+        }
+
+        /** Returns the number of moves made per second. */
+        public long getMovesPerSecond() {
+            return moves * 1000 / Math.max(1, elapsedTime);
+        }
+    }
+
+    // Constructor for ReplayEngine
+    public ReplayEngine(ConfigurationStore store, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.store = store;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs every script in 'sessionsPerScript' sessions of its own and waits for all of them.
+     * @throws InterruptedIOException if the replay is interrupted
+     */
+    public Summary run(List<Script> scripts, int sessionsPerScript) throws InterruptedIOException {
+        Summary summary = new Summary();
+        LongAdder commands = new LongAdder();
+        LongAdder moves = new LongAdder();
+        long startTime = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (Script script : scripts) {
+                for (int s = 0; s < sessionsPerScript; s++) {
+                    int session = s;
+                    results.add(pool.submit(() -> replay(script, session, summary.latency, commands, moves)));
+                }
+            }
+
+            for (Future<String> result : results) {
+                String failure = result.get();
+                summary.sessions++;
+                if (failure == null) {
+                    summary.passed++;
+                } else {
+                    summary.failures.add(failure);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Replay was interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        summary.elapsedTime = System.currentTimeMillis() - startTime;
+        summary.commands = commands.sum();
+        summary.moves = moves.sum();
+        return summary;
+    }
+
+    /**
+     * Runs a script in a new session.
+     * @return null if every check held, otherwise a description of the first failure
+     */
+    private String replay(Script script, int number, Metrics.Histogram latency, LongAdder commands, LongAdder moves) {
+        CommandProcessor processor = new CommandProcessor(store);
+        GameSession session = processor.getSession();
+        Appendable replies = new Discard();
+        MoveHistory game = null;        // the last game played, which stays readable after it ended
+        int executed = 0;
+        int moved = 0;
+        try {
+            for (Command command : script.commands) {
+                if (command.operation != COMMAND) {
+                    String failure = check(game, command);
+                    executed++;
+                    if (failure != null) {
+                        return script.name + " session " + number + " line " + command.line + ": " + failure;
+                    }
+                    continue;
+                }
+
+                MoveHistory before = session.getHistory();
+                int movesBefore = before == null ? 0 : before.getTiles().getMoveCount();
+                long start = System.nanoTime();
+                boolean open = processor.execute(command.text, replies);
+                latency.recordSince(start);
+                executed++;
+                if (before != null && before.getTiles().getMoveCount() != movesBefore) {
+                    moved++;
+                }
+                if (session.getHistory() != null) {
+                    game = session.getHistory();
+                }
+                if (!open) {
+                    break;
+                }
+            }
+            return null;
+        } catch (Exception e) {
+            return script.name + " session " + number + " command " + executed + ": " + e.getMessage();
+        } finally {
+            commands.add(executed);
+            moves.add(moved);
+        }
+    }
+
+    /**
+     * Checks the board of the last game played.
+     * @return null if the check held, otherwise why it failed
+     */
+    private static String check(MoveHistory game, Command command) {
+        if (game == null) {
+            return "no configuration was selected";
+        }
+        Tiles tiles = game.getTiles();
+        switch (command.operation) {
+            case EXPECT_SOLVED:
+                return tiles.isSolved() ? null : "expected a solved board";
+            case EXPECT_MOVES:
+                return tiles.getMoveCount() == command.argument ? null
+                        : "expected " + command.argument + " moves, found " + tiles.getMoveCount();
+            default:
+                if (command.board.length != tiles.getSize() * tiles.getSize()) {
+                    return "expected a board of " + command.board.length + " tiles";
+                }
+                for (int pos = 0; pos < command.board.length; pos++) {
+                    if (tiles.getTileUnchecked(pos) != command.board[pos]) {
+                        return "expected tile " + command.board[pos] + " at position " + pos + ", found " +
+                                tiles.getTileUnchecked(pos);
+                    }
+                }
+                return null;
+        }
+    }
+
+    public static void main(String args[]) {
+        if (args.length < 2) {
+            System.out.println("Usage: java ReplayEngine <path/url to store> <script>... [-sessions <n>] [-threads <n>]");
+            System.out.println("Replays every script in <n> sessions of its own and checks the boards they end with.");
+            return;
+        }
+        try {
+            int sessions = 1;
+            int threads = Runtime.getRuntime().availableProcessors();
+            List<Script> scripts = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("-sessions") && i + 1 < args.length) {
+                    sessions = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    scripts.add(Script.parse(args[i]));
+                }
+            }
+
+            ConfigurationStore cs = new ConfigurationStore(args[0]);
+            if (cs.getLoadReport() != null) {
+                for (LoadReport.LineError error : cs.getLoadReport().getErrors()) {
+                    System.out.println(error);
+                }
+            }
+            Summary summary = new ReplayEngine(cs, threads).run(scripts, sessions);
+            for (String failure : summary.getFailures()) {
+                System.out.println(failure);
+            }
+            Metrics.Histogram latency = summary.getLatency();
+            System.out.println(summary.getPassedCount() + " of " + summary.getSessionCount() + " sessions passed; " +
+                    summary.getCommandCount() + " commands, " + summary.getMoveCount() + " moves in " +
+                    summary.getElapsedTime() + " ms (" + summary.getMovesPerSecond() + " moves/s); latency ns p50=" +
+                    latency.getPercentile(50) + " p99=" + latency.getPercentile(99) + " max=" + latency.getMax());
+        } catch (NumberFormatException e) {
+            System.out.println("The number of sessions and threads must be numbers");
+        } catch (IOException ioe) {
+            System.out.println(ioe.getMessage());
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
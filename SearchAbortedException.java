@@ -0,0 +1,9 @@
+public class SearchAbortedException extends Exception {
+    public SearchAbortedException() {
+        super("Search aborted");
+    }
+
+    public SearchAbortedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,107 @@
+/** A class for a representation of large boards that relies on a 1D array of shorts, so that boards with more
+ * than 127 tiles can be played. It holds boards of size up to MAX_SIZE, whose largest tile still fits into a short. */
+
+import java.util.Arrays;
+
+public class ShortTiles extends Tiles {
+    public static final int MAX_SIZE = 181;
+    private short[] tiles;      // represents the board
+    private int emptyPos;
+    private int invalidTile;    // a tile value that does not fit into a short, reported by ensureValidity
+
+    // Constructor for ShortTiles
+    public ShortTiles(Configuration configuration) throws ConfigurationFormatException, InvalidConfigurationException {
+        super(configuration);
+        if (getSize() > MAX_SIZE) {
+            throw new InvalidConfigurationException("Invalid configuration: boards larger than " + MAX_SIZE +
+                    " cannot be stored in shorts (found " + getSize() + ").");
+        }
+        tiles = new short[getSize() * getSize()];
+        getConfiguration().initialise(this);
+        for (int pos = 0; pos < tiles.length; pos++) {
+            if (tiles[pos] == EMPTY) {
+                emptyPos = pos;
+            }
+        }
+    }
+
+    // Copy constructor for ShortTiles
+    public ShortTiles(ShortTiles other) {
+        super(other);
+        this.emptyPos = other.emptyPos;
+        this.invalidTile = other.invalidTile;
+        tiles = Arrays.copyOf(other.tiles, other.tiles.length);
+    }
+
+    @Override
+    /** Overrides the clone method of the class Object to return a deep copy of the given ShortTiles object. */
+    protected ShortTiles clone() {
+        ShortTiles copy = (ShortTiles) super.clone();
+        copy.tiles = Arrays.copyOf(tiles, tiles.length);
+        return copy;
+    }
+
+    @Override
+    /** Makes a move by sliding a tile into the empty space in the specified direction. */
+    protected void makeMove(Direction direction) {
+        int tilePos = tilePosition(direction);
+        trackMove(tiles[tilePos], tilePos, emptyPos);
+        tiles[emptyPos] = tiles[tilePos];
+        tiles[tilePos] = EMPTY;
+        emptyPos = tilePos;
+    }
+
+    @Override
+    // accessor for a tile without bounds checks
+    public int getTileUnchecked(int pos) {
+        return tiles[pos];
+    }
+
+    @Override
+    // mutator for a tile without bounds checks
+    public void setTileUnchecked(int pos, int value) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            invalidTile = value;
+        }
+
+        trackSet(pos, tiles[pos], value);
+        tiles[pos] = (short) value;
+    }
+
+    @Override
+    // accessor for the position of the empty space
+    public int getEmptyPosition() {
+        return emptyPos;
+    }
+
+    @Override
+    /** Reports tile values that were too large to be stored before performing the usual checks. */
+    public void ensureValidity() throws InvalidConfigurationException {
+        if (invalidTile != 0) {
+            throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + invalidTile);
+        }
+        super.ensureValidity();
+    }
+
+    @Override
+    /**
+     * Checks if one of the tiles can be moved to the specified direction.
+     * @return true if a move to the specified direction can be performed, false otherwise
+     */
+    protected boolean canMove(Direction direction) {
+        int emptyRow = emptyPos / getSize();
+        int emptyCol = emptyPos % getSize();
+        switch (direction) {
+            case UP:
+                return isValidPosition(emptyCol, emptyRow + 1);
+            case RIGHT:
+                return isValidPosition(emptyCol - 1, emptyRow);
+            case DOWN:
+                return isValidPosition(emptyCol, emptyRow - 1);
+            case LEFT:
+                return isValidPosition(emptyCol + 1, emptyRow);
+        }
+
+        return false;
+    }
+}
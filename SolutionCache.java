@@ -0,0 +1,305 @@
+/** A class for a cache of solutions that keeps the most recently used ones up to a maximum number of entries.
+ * Boards are packed into a canonical key: a board and its reflection along the main diagonal share one entry,
+ * because transposing a board, renaming each tile after the tile at its mirrored goal position and swapping
+ * the directions UP with LEFT and DOWN with RIGHT turns every solution of one into a solution of the other.
+ * The number of hits, misses and evictions is counted, and the entries can be saved to a file and loaded again
+ * so that the cache survives restarts. All methods are safe to call from several threads. */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SolutionCache {
+    public static final int MAGIC = 0x4E505343;     // "NPSC"
+    private static final int VERSION = 1;
+    private static final Tiles.Direction[] DIRECTIONS = Tiles.Direction.values();
+    // the direction on the transposed board of each direction, by ordinal: UP <-> LEFT, RIGHT <-> DOWN
+    private static final Tiles.Direction[] TRANSPOSED = {
+            Tiles.Direction.LEFT, Tiles.Direction.DOWN, Tiles.Direction.RIGHT, Tiles.Direction.UP };
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, byte[]> entries;   // solutions of the canonical boards, least recent first
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Computes a solution for a board, for instance with one of the solvers. */
+    public interface SolverFunction {
+        List<Tiles.Direction> solve(Tiles tiles) throws InvalidConfigurationException, SearchAbortedException;
+    }
+
+    // the packed tiles of a canonical board
+    private static final class Key {
+        private final int size;
+        private final long[] words;
+        private final int hash;
+
+        Key(int size, long[] words) {
+            this.size = size;
+            this.words = words;
+            this.hash = 31 * size + Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return size == key.size && Arrays.equals(words, key.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // a board in canonical form and whether it had to be transposed to get there
+    private static final class Canonical {
+        private final Key key;
+        private final boolean transposed;
+
+        Canonical(Key key, boolean transposed) {
+            this.key = key;
+            this.transposed = transposed;
+        }
+    }
+
+    // Constructor for SolutionCache
+    public SolutionCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("A cache needs room for at least one entry");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                if (size() > SolutionCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // accessor for the number of lookups that found a solution
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    // accessor for the number of lookups that found no solution
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // accessor for the number of entries dropped to make room for newer ones
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // accessor for the number of cached solutions
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // accessor for the maximum number of cached solutions
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Looks up the solution of a board or of its transpose.
+     * @return the cached list of moves that solves 'tiles', or null if there is none
+     */
+    public List<Tiles.Direction> get(Tiles tiles) {
+        Canonical canonical = canonical(tiles);
+        byte[] moves;
+        synchronized (this) {
+            moves = entries.get(canonical.key);
+            if (moves == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        List<Tiles.Direction> path = new ArrayList<>(moves.length);
+        for (byte move : moves) {
+            path.add(canonical.transposed ? TRANSPOSED[move] : DIRECTIONS[move]);
+        }
+        return path;
+    }
+
+    /** Stores the solution of a board, which then also serves the transpose of the board. */
+    public void put(Tiles tiles, List<Tiles.Direction> path) {
+        Canonical canonical = canonical(tiles);
+        byte[] moves = new byte[path.size()];
+        for (int i = 0; i < moves.length; i++) {
+            Tiles.Direction direction = path.get(i);
+            moves[i] = (byte) (canonical.transposed ? TRANSPOSED[direction.ordinal()] : direction).ordinal();
+        }
+
+        synchronized (this) {
+            entries.put(canonical.key, moves);
+        }
+    }
+
+    /**
+     * Returns the cached solution of a board, or computes it with 'solver' and caches it. The solver runs
+     * without holding the lock of the cache, so two threads may solve the same board at the same time.
+     */
+    public List<Tiles.Direction> getOrSolve(Tiles tiles, SolverFunction solver)
+            throws InvalidConfigurationException, SearchAbortedException {
+        List<Tiles.Direction> path = get(tiles);
+        if (path == null) {
+            path = solver.solve(tiles);
+            put(tiles, path);
+        }
+
+        return path;
+    }
+
+    /** Removes all entries. The counters keep their values. */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the key of a board or of its transpose, whichever is smaller. In the transpose the tile at
+     * (col, row) is the tile at (row, col) renamed after its mirrored goal position, so the solved board
+     * stays solved.
+     */
+    private static Canonical canonical(Tiles tiles) {
+        int size = tiles.getSize();
+        int cells = size * size;
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(cells - 1));
+        int perWord = Long.SIZE / bits;
+        long[] plain = new long[(cells + perWord - 1) / perWord];
+        long[] transposed = new long[plain.length];
+        for (int pos = 0; pos < cells; pos++) {
+            int shift = (pos % perWord) * bits;
+            plain[pos / perWord] |= (long) tiles.getTileUnchecked(pos) << shift;
+
+            int value = tiles.getTileUnchecked((pos % size) * size + pos / size);
+            if (value != Tiles.EMPTY) {
+                value = ((value - 1) % size) * size + (value - 1) / size + 1;
+            }
+            transposed[pos / perWord] |= (long) value << shift;
+        }
+
+        // any fixed order will do, as long as a board and its transpose agree on it
+        for (int i = 0; i < plain.length; i++) {
+            if (plain[i] != transposed[i]) {
+                return Long.compareUnsigned(plain[i], transposed[i]) < 0 ? new Canonical(new Key(size, plain), false)
+                        : new Canonical(new Key(size, transposed), true);
+            }
+        }
+        return new Canonical(new Key(size, plain), false);
+    }
+
+    /**
+     * Writes all entries to a file, least recently used first, packing four moves into every byte.
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        List<Map.Entry<Key, byte[]>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.size());
+            for (Map.Entry<Key, byte[]> entry : entries.entrySet()) {
+                snapshot.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        File file = new File(filename);
+        File temporary = new File(filename + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<Key, byte[]> entry : snapshot) {
+                Key key = entry.getKey();
+                byte[] moves = entry.getValue();
+                out.writeByte(key.size);
+                out.writeByte(key.words.length);
+                for (long word : key.words) {
+                    out.writeLong(word);
+                }
+                out.writeInt(moves.length);
+                for (int i = 0; i < moves.length; i += 4) {
+                    int packed = 0;
+                    for (int j = i; j < Math.min(i + 4, moves.length); j++) {
+                        packed |= moves[j] << (2 * (j - i));
+                    }
+                    out.writeByte(packed);
+                }
+            }
+        }
+
+        // replace the old file only once the new one is complete, in a single step so that a crash keeps the old one
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IOException("Failed to replace solution cache file: " + filename, e);
+        }
+    }
+
+    /**
+     * Adds the entries of a file written by save, as if they were put in the order they were saved. Entries
+     * beyond the maximum number are evicted as usual. Loading a file that does not exist adds nothing.
+     * @return the number of entries read
+     * @throws IOException if the file cannot be read or is not a solution cache file
+     */
+    public int load(String filename) throws IOException {
+        if (!new File(filename).exists()) {
+            return 0;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a solution cache file: " + filename);
+            }
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unsupported solution cache file version: " + filename);
+            }
+
+            int count = in.readInt();
+            for (int e = 0; e < count; e++) {
+                int size = in.readUnsignedByte();
+                long[] words = new long[in.readUnsignedByte()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                byte[] moves = new byte[in.readInt()];
+                for (int i = 0; i < moves.length; i += 4) {
+                    int packed = in.readUnsignedByte();
+                    for (int j = i; j < Math.min(i + 4, moves.length); j++) {
+                        moves[j] = (byte) ((packed >>> (2 * (j - i))) & 3);
+                    }
+                }
+
+                synchronized (this) {
+                    entries.put(new Key(size, words), moves);
+                }
+            }
+            return count;
+        } catch (EOFException e) {
+            throw new IOException("Truncated solution cache file: " + filename);
+        }
+    }
+}
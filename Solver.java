@@ -0,0 +1,165 @@
+/** A class that computes an optimal sequence of moves for a board using iterative deepening A* (IDA*).
+ * The search is guided by a Heuristic that is updated incrementally after each move instead of being
+ * recomputed over the whole board. By default the Manhattan distance with linear conflicts is used. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Solver {
+    private static final int FOUND = -1;
+    private static final int ABORTED = -2;
+    private static final int CHECK_INTERVAL = 4096;     // the number of nodes expanded between checks for aborting
+    private static final Tiles.Direction[] DIRECTIONS = Tiles.Direction.values();
+    private static final Metrics.Histogram SEARCH_TIME = Metrics.histogram("solver.idastar.ms");
+    private static final Metrics.Counter NODES = Metrics.counter("solver.idastar.nodes");
+
+    private Tiles start;            // the board to solve, never modified
+    private Tiles board;            // the working copy the search moves around
+    private Heuristic heuristic;
+    private Tiles.Direction[] path;
+    private int pathLength;
+    private long nodesExpanded;
+    private long elapsedTime;
+    private long timeLimit;         // the number of milliseconds a search may take, 0 for no limit
+    private long deadline;
+    private volatile boolean cancelled;
+
+    // Constructor for Solver
+    public Solver(Tiles tiles) {
+        this(tiles, new LinearConflictHeuristic(tiles.getSize()));
+    }
+
+    // Constructor for Solver
+    public Solver(Tiles tiles, Heuristic heuristic) {
+        this.start = tiles;
+        this.heuristic = heuristic;
+    }
+
+    // accessor for the number of nodes expanded by the last search
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    // accessor for the wall-clock time in milliseconds taken by the last search
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    // mutator for the number of milliseconds a search may take, 0 for no limit
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Asks a running search to stop. Safe to call from any thread; the search throws SearchAbortedException.
+     * The next call of solve searches again.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Computes an optimal solution for the board. Applying the returned directions in order with
+     * Tiles.move solves the board.
+     * @return the shortest list of moves that solves the board
+     * @throws InvalidConfigurationException if the board cannot be solved
+     * @throws SearchAbortedException if the time limit was exceeded or the search was cancelled
+     */
+    public List<Tiles.Direction> solve() throws InvalidConfigurationException, SearchAbortedException {
+        if (!start.isSolvable()) {
+            throw new InvalidConfigurationException("Invalid configuration: the puzzle is not solvable.");
+        }
+
+        long startTime = System.currentTimeMillis();
+        deadline = timeLimit > 0 ? startTime + timeLimit : Long.MAX_VALUE;
+        cancelled = false;
+        nodesExpanded = 0;
+        board = start.clone();
+
+        int h = heuristic.reset(board);
+        int bound = h;
+        while (true) {
+            if (path == null || path.length < bound + 1) {
+                path = new Tiles.Direction[bound + 1];
+            }
+            int t = search(0, bound, h, null);
+            if (t == FOUND) {
+                break;
+            }
+            if (t == ABORTED) {
+                elapsedTime = System.currentTimeMillis() - startTime;
+                recordMetrics();
+                throw new SearchAbortedException(cancelled ? "Search aborted: cancelled."
+                        : "Search aborted: time limit of " + timeLimit + " ms exceeded.");
+            }
+            bound = t;
+        }
+        elapsedTime = System.currentTimeMillis() - startTime;
+        recordMetrics();
+
+        return new ArrayList<>(Arrays.asList(path).subList(0, pathLength));
+    }
+
+    /**
+     * Performs a depth-first search bounded by 'bound' from the current state of the working copy.
+     * @return FOUND if the board was solved, ABORTED if the search has to stop,
+     * otherwise the smallest estimate that exceeded the bound
+     */
+    private int search(int g, int bound, int h, Tiles.Direction previous) {
+        int f = g + h;
+        if (f > bound) {
+            return f;
+        }
+        if (h == 0 && board.isSolved()) {
+            pathLength = g;
+            return FOUND;
+        }
+
+        nodesExpanded++;
+        if (nodesExpanded % CHECK_INTERVAL == 0 && (cancelled || System.currentTimeMillis() > deadline)) {
+            return ABORTED;
+        }
+        int min = Integer.MAX_VALUE;
+        for (Tiles.Direction direction : DIRECTIONS) {
+            if (previous != null && direction == previous.opposite()) {
+                continue;
+            }
+            if (!board.canMove(direction)) {
+                continue;
+            }
+
+            int next = slide(direction);
+            path[g] = direction;
+            int t = search(g + 1, bound, next, direction);
+            if (t == FOUND || t == ABORTED) {
+                return t;
+            }
+            slide(direction.opposite());
+            if (t < min) {
+                min = t;
+            }
+        }
+
+        return min;
+    }
+
+    /** Makes a move on the working copy and updates the heuristic for the tile that was moved.
+     * @return the estimate for the resulting board
+     */
+    private int slide(Tiles.Direction direction) {
+        int empty = board.getEmptyPosition();
+        int tile = board.tilePosition(direction);
+        int value = board.getTileUnchecked(tile);
+        board.makeMove(direction);
+        return heuristic.update(board, value, tile, empty);
+    }
+
+    // adds the last search to the metrics
+    private void recordMetrics() {
+        if (Metrics.ENABLED) {
+            SEARCH_TIME.record(elapsedTime);
+            NODES.add(nodesExpanded);
+        }
+    }
+}
@@ -1,21 +1,72 @@
-import java.util.ArrayList;
+/** A class for a board. Besides the tiles, which the subclasses store, it keeps the number of misplaced fields and
+ * the sum of the Manhattan distances of the tiles to their goal positions. Subclasses report every change of a
+ * field through trackSet and every move through trackMove, so both numbers stay up to date in constant time and
+ * isSolved does not have to look at the board. */
+
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class Tiles implements Cloneable {
     protected static final byte EMPTY = 0;
     private int moves;      // a counter to keep track of the number of moves made
     private Configuration configuration;
+    private final int size; // the size of the board, cached so that hot paths do not go through 'configuration'
+    private int misplaced;  // the number of fields that do not hold their goal value, the empty field included
+    private int manhattan;  // the sum of the Manhattan distances of the tiles to their goal positions
+    private final int[] rows;       // the row of every position, shared by all boards of the same size
+    private final int[] cols;       // the column of every position, shared by all boards of the same size
+    private static final Metrics.Counter MOVES = Metrics.counter("tiles.moves");
+    private static final ConcurrentHashMap<Integer, int[][]> COORDINATES = new ConcurrentHashMap<>();
+    // a validator per thread, whose scratch arrays are reused by every check made on that thread
+    private static final ThreadLocal<BoardValidator> VALIDATOR = ThreadLocal.withInitial(BoardValidator::new);
+
+    protected enum Direction {
+        UP, RIGHT, DOWN, LEFT;
 
-    protected enum Direction {UP, RIGHT, DOWN, LEFT}
+        /** Returns the direction that undoes a move made in this direction. */
+        public Direction opposite() {
+            switch (this) {
+                case UP:
+                    return DOWN;
+                case RIGHT:
+                    return LEFT;
+                case DOWN:
+                    return UP;
+                default:
+                    return RIGHT;
+            }
+        }
+    }
 
     // Constructor for Configuration class
     public Tiles(Configuration configuration) {
         this.configuration = configuration;
+        this.size = configuration.getSize();
+        int[][] coordinates = COORDINATES.computeIfAbsent(size, Tiles::coordinates);
+        this.rows = coordinates[0];
+        this.cols = coordinates[1];
+        // subclasses start with every field empty, which is only right for the last field
+        this.misplaced = size * size - 1;
     }
 
     // Copy constructor for Configuration class
     public Tiles(Tiles other) {
         this.moves  = other.moves;
         this.configuration = other.configuration;
+        this.size = other.size;
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.misplaced = other.misplaced;
+        this.manhattan = other.manhattan;
+    }
+
+    // returns the rows and the columns of the positions of a board of the given size
+    private static int[][] coordinates(int size) {
+        int[][] coordinates = new int[2][size * size];
+        for (int pos = 0; pos < size * size; pos++) {
+            coordinates[0][pos] = pos / size;
+            coordinates[1][pos] = pos % size;
+        }
+        return coordinates;
     }
 
     @Override
@@ -31,7 +82,7 @@ public abstract class Tiles implements Cloneable {
 
     // accessor for the size of the board
     public int getSize() {
-        return configuration.getSize();
+        return size;
     }
 
     // accessor for moves
@@ -62,6 +113,9 @@ public abstract class Tiles implements Cloneable {
         }
         makeMove(direction);
         incrementMoveCount();
+        if (Metrics.ENABLED) {
+            MOVES.increment();
+        }
     }
 
     /**
@@ -71,7 +125,25 @@ public abstract class Tiles implements Cloneable {
      * @return true if the given coordinate is within the bounds of the board, false otherwise
      */
     protected boolean isValidPosition(int col, int row) {
-        return col >= 0 && col < getSize() && row >= 0 && row < getSize();
+        return col >= 0 && col < size && row >= 0 && row < size;
+    }
+
+    /**
+     * Returns the position (row * size + col) of the tile that a move in the specified direction slides into
+     * the empty space. The position is only on the board if canMove returns true for the direction.
+     */
+    protected int tilePosition(Direction direction) {
+        int empty = getEmptyPosition();
+        switch (direction) {
+            case UP:
+                return empty + size;
+            case RIGHT:
+                return empty - 1;
+            case DOWN:
+                return empty - size;
+            default:
+                return empty + 1;
+        }
     }
 
     /** Makes a move by sliding a tile into the empty space in the specified direction. */
@@ -84,123 +156,106 @@ public abstract class Tiles implements Cloneable {
     protected abstract boolean canMove(Direction direction);
 
     // accessor for a specific tile
-    public abstract byte getTile(int col, int row);
+    public int getTile(int col, int row) {
+        checkPosition(col, row);
+        return getTileUnchecked(row * size + col);
+    }
 
     // mutator for a specific tile
-    public abstract void setTile(int col, int row, byte value);
+    public void setTile(int col, int row, int value) {
+        checkPosition(col, row);
+        setTileUnchecked(row * size + col, value);
+    }
+
+    // throws an IndexOutOfBoundsException if the given coordinate is not on the board
+    private void checkPosition(int col, int row) {
+        if (!isValidPosition(col, row)) {
+            throw new IndexOutOfBoundsException("Position (" + col + ", " + row + ") is out of the board " +
+                    "of size " + size);
+        }
+    }
+
+    /**
+     * Returns the tile at position 'pos' (row * size + col) without checking that the position is on the board.
+     * Meant for search code that computes positions it knows to be valid.
+     */
+    public abstract int getTileUnchecked(int pos);
+
+    /**
+     * Sets the tile at position 'pos' (row * size + col) without checking that the position is on the board.
+     * Implementations that cannot hold 'value' remember it and report it from ensureValidity.
+     */
+    public abstract void setTileUnchecked(int pos, int value);
+
+    // accessor for the position (row * size + col) of the empty space
+    public abstract int getEmptyPosition();
 
     /**
      * Checks if the puzzle is solved.
      * @return true if the puzzle is solved, false otherwise
      */
     public boolean isSolved() {
-        int count = 1;
-        for (int i = 0; i < getSize(); i++) {
-            for (int j = 0; j < getSize(); j++) {
-                if (count == getSize() * getSize()) {
-                    break;
-                }
-                if (getTile(j, i) != count) {
-                    return false;
-                }
-                count++;
-            }
-        }
-
-        return true;
+        return misplaced == 0;
     }
 
-    /** Checks if the there are invalid fields in the configuration and throws a corresponding exception if necessary. */
-    public void ensureValidity() throws InvalidConfigurationException {
-        //checking if there is tile with a too small or too large value for the given board
-        for (int i = 0; i < getSize(); i++) {
-            for (int j = 0; j < getSize(); j++) {
-                if (getTile(j, i) < 0 || getTile(j, i) >= getSize() * getSize()) {
-                    byte a = getTile(j, i);
-                    throw new InvalidConfigurationException("Invalid configuration: incorrect tile value " + a);
-                }
-            }
-        }
-
-        //checking if the board contains multiple empty spaces
-        int emptySpaces = 0;
-        for (int i = 0; i < getSize(); i++) {
-            for (int j = 0; j < getSize(); j++) {
-                if (getTile(j, i) == EMPTY) {
-                    emptySpaces++;
-                }
-                if (emptySpaces > 1) {
-                    throw new InvalidConfigurationException("Invalid configuration: multiple empty spaces.");
-                }
-            }
-        }
-
+    // accessor for the number of fields that do not hold their goal value, the empty field included
+    public int getMisplacedCount() {
+        return misplaced;
+    }
 
-        // checking if the board contains multiple tiles with the same value
-        ArrayList<Byte> container = new ArrayList<>(getSize() * getSize());
-        for (int i = 0; i < getSize(); i++) {
-            for (int j = 0; j < getSize(); j++) {
-                if (container.contains(getTile(j, i))) {
-                    byte a = getTile(j, i);
-                    throw new InvalidConfigurationException("Invalid configuration: multiple tiles " +
-                            "with the value " + a + ".");
-                }
+    // accessor for the sum of the Manhattan distances of the tiles to their goal positions
+    public int getManhattanDistance() {
+        return manhattan;
+    }
 
-                container.add(getTile(j, i));
-            }
-        }
+    /** Must be called by subclasses whenever the field at 'pos' changes from 'oldValue' to 'newValue'. */
+    protected final void trackSet(int pos, int oldValue, int newValue) {
+        int goal = goalValue(pos);
+        misplaced += (newValue != goal ? 1 : 0) - (oldValue != goal ? 1 : 0);
+        manhattan += distance(newValue, pos) - distance(oldValue, pos);
     }
 
     /**
-     * Checks if the puzzle is solvable.
-     * @return true if it is possible to solve the puzzle, false otherwise
+     * Must be called by subclasses for every move, before or after it is made: the tile 'value' slides from
+     * position 'from' into the empty space at position 'to'.
      */
-    public boolean isSolvable() {
-        // if n is odd
-        if (getSize() % 2 == 1) {
-            return isEvenPermutation();
+    protected final void trackMove(int value, int from, int to) {
+        int fromGoal = goalValue(from);
+        int toGoal = goalValue(to);
+        misplaced += (value != toGoal ? 1 : 0) - (value != fromGoal ? 1 : 0)
+                + (fromGoal != EMPTY ? 1 : 0) - (toGoal != EMPTY ? 1 : 0);
+        // the positions are neighbours, so only the row or only the column changes
+        int goal = value - 1;
+        if (rows[from] == rows[to]) {
+            manhattan += Math.abs(cols[to] - cols[goal]) - Math.abs(cols[from] - cols[goal]);
+        } else {
+            manhattan += Math.abs(rows[to] - rows[goal]) - Math.abs(rows[from] - rows[goal]);
         }
+    }
 
-        // if n is even
-        int blank = 0;
-        outer: for (int i = 0; i < getSize(); i++) {
-            for (int j = 0; j < getSize(); j++) {
-                if (getTile(j, i) == EMPTY) {
-                    blank = getSize() - i;
-                    break outer;
-                }
-            }
-        }
+    // returns the value the field at 'pos' holds on the solved board
+    private int goalValue(int pos) {
+        return pos == rows.length - 1 ? EMPTY : pos + 1;
+    }
 
-        //if the blank is on an even row counting from the bottom
-        if (blank % 2 == 0) {
-            return !isEvenPermutation();
+    // returns the Manhattan distance of 'value' at 'pos' to its goal position, 0 for the empty space and bad values
+    private int distance(int value, int pos) {
+        if (value <= EMPTY || value >= rows.length) {
+            return 0;
         }
+        return Math.abs(rows[pos] - rows[value - 1]) + Math.abs(cols[pos] - cols[value - 1]);
+    }
 
-        //if the blank is on an odd row counting from the bottom
-        return isEvenPermutation();
+    /** Checks if the there are invalid fields in the configuration and throws a corresponding exception if necessary. */
+    public void ensureValidity() throws InvalidConfigurationException {
+        VALIDATOR.get().validate(this);
     }
 
-    /** Checks if the permutation is even or not.
-     * @return true if the permutation is even, false otherwise
+    /**
+     * Checks if the puzzle is solvable.
+     * @return true if it is possible to solve the puzzle, false otherwise
      */
-    private boolean isEvenPermutation() {
-        int numberOfInversions = 0;
-        byte[] arr = new byte[getSize() * getSize()];
-        int c = 0;
-        for (int i = 0; i < getSize(); i++) {
-            for (int j = 0; j < getSize(); j++) {
-                arr[c++] = getTile(j, i);
-            }
-        }
-
-        for (int i = 0; i < arr.length; i++) {
-            for (int j = i + 1; j < arr.length; j++) {
-                if (arr[j] != EMPTY && arr[j] < arr[i]) {
-                    numberOfInversions++;
-                }
-            }
-        }
-        return numberOfInversions % 2 == 0;
+    public boolean isSolvable() {
+        return VALIDATOR.get().isSolvable(this);
     }
 }
@@ -0,0 +1,184 @@
+/** A class that checks the packed board representations against ArrayTiles. Random boards of sizes 2 to 5 are
+ * walked with random moves, some of them off the board, and now and then two tiles are swapped with
+ * setTileUnchecked or the boards are cloned; after every step each tile, the empty space, the move count and the
+ * incrementally tracked counts of LongTiles and LongPairTiles must equal those of ArrayTiles. The static helpers
+ * that read and write a single field are also checked at every position with every value, including the field of
+ * LongPairTiles that is split between its two longs. Run it with 'java TilesEquivalenceCheck'; it exits with
+ * status 1 at the first difference. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class TilesEquivalenceCheck {
+    private static final Tiles.Direction[] DIRECTIONS = Tiles.Direction.values();
+
+    private static long checks;     // the number of comparisons made
+
+    /** Checks tileAt and withTile of LongTiles at every position with every value on random boards. */
+    private static void checkLongFields(SplittableRandom random) {
+        int cells = LongTiles.MAX_SIZE * LongTiles.MAX_SIZE;
+        for (int round = 0; round < 1000; round++) {
+            long board = random.nextLong();
+            for (int pos = 0; pos < cells; pos++) {
+                for (int value = 0; value < cells; value++) {
+                    long updated = LongTiles.withTile(board, pos, value);
+                    for (int other = 0; other < cells; other++) {
+                        int expected = other == pos ? value : LongTiles.tileAt(board, other);
+                        if (LongTiles.tileAt(updated, other) != expected) {
+                            fail("LongTiles.withTile(" + Long.toHexString(board) + ", " + pos + ", " + value +
+                                    ") changed position " + other);
+                        }
+                        checks++;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Checks tileAt, lowWithTile and highWithTile of LongPairTiles at every position with every value. */
+    private static void checkLongPairFields(SplittableRandom random) {
+        int cells = LongPairTiles.MAX_SIZE * LongPairTiles.MAX_SIZE;
+        for (int round = 0; round < 1000; round++) {
+            long low = random.nextLong();
+            long high = random.nextLong();
+            for (int pos = 0; pos < cells; pos++) {
+                for (int value = 0; value < cells; value++) {
+                    long updatedLow = LongPairTiles.lowWithTile(low, pos, value);
+                    long updatedHigh = LongPairTiles.highWithTile(high, pos, value);
+                    for (int other = 0; other < cells; other++) {
+                        int expected = other == pos ? value : LongPairTiles.tileAt(low, high, other);
+                        if (LongPairTiles.tileAt(updatedLow, updatedHigh, other) != expected) {
+                            fail("LongPairTiles with tile " + value + " at position " + pos +
+                                    " changed position " + other);
+                        }
+                        checks++;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Walks one random board of 'size' with every implementation and compares them after every step. */
+    private static void walk(int size, long index, int moves, SplittableRandom random) throws Exception {
+        int[] values = new BoardGenerator(size, random.nextLong()).generate(index);
+        StringBuilder line = new StringBuilder().append(size).append(':');
+        for (int pos = 0; pos < values.length; pos++) {
+            line.append(pos > 0 && pos % size == 0 ? " :" : "").append(' ').append(values[pos]);
+        }
+        Configuration configuration = new Configuration(line.toString());
+
+        Tiles reference = new ArrayTiles(configuration);
+        List<Tiles> boards = new ArrayList<>();
+        if (size <= LongTiles.MAX_SIZE) {
+            boards.add(new LongTiles(configuration));
+        }
+        boards.add(new LongPairTiles(configuration));
+        compare(reference, boards, "start of " + line);
+
+        for (int m = 0; m < moves; m++) {
+            int step = random.nextInt(100);
+            String done;
+            if (step < 90) {
+                Tiles.Direction direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+                reference.move(direction);
+                for (Tiles board : boards) {
+                    board.move(direction);
+                }
+                done = "move " + m + " " + direction;
+            } else if (step < 97) {
+                int first = random.nextInt(values.length);
+                int second = random.nextInt(values.length);
+                if (first == reference.getEmptyPosition() || second == reference.getEmptyPosition()) {
+                    continue;
+                }
+                swap(reference, first, second);
+                for (Tiles board : boards) {
+                    swap(board, first, second);
+                }
+                done = "swap of positions " + first + " and " + second + " at move " + m;
+            } else {
+                reference = reference.clone();
+                for (int b = 0; b < boards.size(); b++) {
+                    boards.set(b, boards.get(b).clone());
+                }
+                done = "clone at move " + m;
+            }
+            compare(reference, boards, done + " of " + line);
+        }
+
+        for (Tiles board : boards) {
+            if (board.isSolvable() != reference.isSolvable()) {
+                fail(board.getClass().getSimpleName() + ".isSolvable differs at the end of " + line);
+            }
+        }
+    }
+
+    // swaps two tiles that are not the empty space
+    private static void swap(Tiles tiles, int first, int second) {
+        int value = tiles.getTileUnchecked(first);
+        tiles.setTileUnchecked(first, tiles.getTileUnchecked(second));
+        tiles.setTileUnchecked(second, value);
+    }
+
+    // compares every board with the reference and stops at the first difference
+    private static void compare(Tiles reference, List<Tiles> boards, String step) {
+        int cells = reference.getSize() * reference.getSize();
+        for (Tiles board : boards) {
+            String name = board.getClass().getSimpleName();
+            for (int pos = 0; pos < cells; pos++) {
+                if (board.getTileUnchecked(pos) != reference.getTileUnchecked(pos)) {
+                    fail(name + " has tile " + board.getTileUnchecked(pos) + " at position " + pos + " instead of " +
+                            reference.getTileUnchecked(pos) + " after " + step);
+                }
+            }
+            if (board.getEmptyPosition() != reference.getEmptyPosition()) {
+                fail(name + " has the empty space at " + board.getEmptyPosition() + " after " + step);
+            }
+            if (board.getMoveCount() != reference.getMoveCount()) {
+                fail(name + " counted " + board.getMoveCount() + " moves after " + step);
+            }
+            if (board.isSolved() != reference.isSolved() ||
+                    board.getMisplacedCount() != reference.getMisplacedCount() ||
+                    board.getManhattanDistance() != reference.getManhattanDistance()) {
+                fail(name + " tracks different misplaced tiles or Manhattan distance after " + step);
+            }
+            checks += cells + 4;
+        }
+    }
+
+    // reports a difference and stops
+    private static void fail(String message) {
+        System.out.println("FAILED: " + message);
+        System.exit(1);
+    }
+
+    public static void main(String args[]) {
+        if (args.length > 3) {
+            System.out.println("Usage: java TilesEquivalenceCheck [boards per size] [moves per board] [seed]");
+            System.out.println("Compares LongTiles and LongPairTiles with ArrayTiles on random walks.");
+            return;
+        }
+        try {
+            int boards = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+            int moves = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+            SplittableRandom random = new SplittableRandom(seed);
+
+            long startTime = System.currentTimeMillis();
+            checkLongFields(random);
+            checkLongPairFields(random);
+            for (int size = 2; size <= LongPairTiles.MAX_SIZE; size++) {
+                for (int b = 0; b < boards; b++) {
+                    walk(size, b, moves, random);
+                }
+            }
+            System.out.println("OK: " + checks + " comparisons in " + (System.currentTimeMillis() - startTime) +
+                    " ms");
+        } catch (NumberFormatException e) {
+            System.out.println("The number of boards and moves and the seed must be numbers");
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}